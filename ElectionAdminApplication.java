@@ -0,0 +1,57 @@
+import common.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ElectionAdminApplication
+ * 
+ * Administração das rodadas de uma eleição no ZooKeeper: apaga uma rodada terminada
+ * (reset, ou qualquer rodada com --force) ou executa o coletor que apaga periodicamente
+ * as rodadas expiradas (reap).
+ */
+public class ElectionAdminApplication {
+
+    public static void main(String[] args) throws Exception {
+        List<String> argList = new ArrayList<>(Arrays.asList(args));
+        boolean force = argList.remove("--force");
+        args = argList.toArray(new String[0]);
+
+        if (args.length >= 3 && args[0].equals("reset")) {
+            UrnConfig config = config(args[1], args.length > 3 ? args[3] : null);
+            ElectionRounds rounds = new ElectionRounds(config.connectString(), config.roundsRoot());
+            try {
+                int deleted = rounds.reset(args[2], force);
+                System.out.println("Round " + args[2] + " reset (" + deleted + " znodes deleted)");
+            } catch (IllegalStateException e) {
+                System.err.println(e.getMessage() + "; use --force to delete it anyway");
+                System.exit(1);
+            }
+        } else if (args.length >= 3 && args[0].equals("reap")) {
+            UrnConfig config = config(args[1], args.length > 3 ? args[3] : null);
+            long ttlMs = Long.parseLong(args[2]) * 60_000;
+            long intervalMs = (args.length > 4 ? Long.parseLong(args[4]) : 60) * 1000;
+            ElectionRounds rounds = new ElectionRounds(config.connectString(), config.roundsRoot());
+            if (intervalMs <= 0) {
+                List<String> reaped = rounds.reapExpired(ttlMs);
+                System.out.println("Reaped " + reaped.size() + " expired round(s)");
+            } else {
+                System.out.println("Reaping rounds idle for more than " + args[2] + " min under " + config.roundsRoot());
+                rounds.startReaper(ttlMs, intervalMs);
+                Thread.currentThread().join(); // Executa até ser interrompido
+            }
+        } else {
+            System.err.println("Usage: java ElectionAdminApplication reset <zk-address> <round-id> [election-id] [--force]");
+            System.err.println("       java ElectionAdminApplication reap <zk-address> <ttl-minutes> [election-id] [interval-seconds]");
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private static UrnConfig config(String zkConnect, String electionId) {
+        UrnConfig config = new UrnConfig();
+        config.zkConnect = zkConnect;
+        config.electionId = electionId;
+        return config;
+    }
+}
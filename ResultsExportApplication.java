@@ -0,0 +1,64 @@
+import common.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * ResultsExportApplication
+ * 
+ * Exporta a apuração total publicada no ZooKeeper para o arquivo colunar
+ * (ColumnarResultsWriter) e consulta esse arquivo sem reprocessar o JSON.
+ */
+public class ResultsExportApplication {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2 && args[0].equals("export")) {
+            UrnConfig config = new UrnConfig();
+            if (args.length > 2) config.zkConnect = args[2];
+            if (args.length > 3) config.electionId = args[3];
+            if (args.length > 4) config.roundId = args[4];
+            export(Paths.get(args[1]), config);
+        } else if (args.length >= 3 && args[0].equals("query")) {
+            query(Paths.get(args[1]), args[2], args.length > 3 ? args[3] : null);
+        } else {
+            System.err.println("Usage: java ResultsExportApplication export <out-file> [zk-address] [election-id] [round-id]");
+            System.err.println("       java ResultsExportApplication query <file> <candidate|region> [region]");
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Lê /tallies/total (no namespace da eleição e da rodada) do ZooKeeper e grava o arquivo colunar.
+     */
+    private static void export(Path file, UrnConfig config) throws Exception {
+        SyncPrimitive.DataStore dataStore = new SyncPrimitive.DataStore(config.connectString());
+        String totalTallyPath = config.path("/tallies/total");
+        byte[] totalData = dataStore.retrieve(totalTallyPath);
+        if (totalData == null || totalData.length == 0) {
+            System.err.println("No total tally found at " + totalTallyPath);
+            System.exit(1);
+        }
+        RegionalTally total = RegionalTally.fromJson(new String(totalData));
+        ColumnarResultsWriter.write(total, file);
+        System.out.println("Exported " + total.urnBus.size() + " urns to " + file);
+    }
+
+    /**
+     * Agrega os votos do arquivo colunar por candidato ou por região.
+     */
+    private static void query(Path file, String groupBy, String region) throws Exception {
+        ColumnarResultsReader reader = new ColumnarResultsReader(file);
+        Map<String, Long> result;
+        if (groupBy.equals("candidate")) {
+            result = region != null ? reader.votesByCandidate(region) : reader.votesByCandidate();
+        } else if (groupBy.equals("region")) {
+            result = reader.votesByRegion();
+        } else {
+            System.err.println("Unknown aggregation: " + groupBy);
+            System.exit(1);
+            return;
+        }
+        result.forEach((key, votes) -> System.out.println(key + ": " + votes));
+    }
+}
@@ -1,6 +1,8 @@
 import common.*;
 import com.google.gson.Gson;
 import java.util.*;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
@@ -15,46 +17,158 @@ public class UrnNodeApplication {
 
     /**
      * Main padrão que certifica se o arquivo de configuração foi passado como argumento.
+     * Com vários arquivos, cada urna roda em sua própria thread compartilhando a sessão
+     * do ZooKeeper, o que permite participar de várias eleições (namespaces) em paralelo.
      */
     public static void main(String[] args) throws Exception {
         if (args.length < 1) {
-            System.err.println("Usage: java UrnNodeApplication <config-file>");
+            System.err.println("Usage: java UrnNodeApplication <config-file> [<config-file> ...]");
             System.exit(1);
         }
 
-        // Lê o arquivo de configuração e inicializa a UrnNode
-        String json = new String(Files.readAllBytes(Paths.get(args[0])));
-        UrnConfig config = new Gson().fromJson(json, UrnConfig.class);
-        UrnNode node = new UrnNode(config);
-        node.start();
+        // Lê os arquivos de configuração
+        List<UrnConfig> configs = new ArrayList<>();
+        for (String arg : args) {
+            String json = new String(Files.readAllBytes(Paths.get(arg)));
+            configs.add(new Gson().fromJson(json, UrnConfig.class));
+        }
+
+        // A sessão é única no processo, então todas as urnas precisam da mesma conexão
+        String connectString = configs.get(0).connectString();
+        for (UrnConfig config : configs) {
+            if (!config.connectString().equals(connectString)) {
+                System.err.println("All configs in one process must share the same ZooKeeper connection"
+                    + " (use electionId without useChroot to run several elections together)");
+                System.exit(1);
+            }
+        }
+
+        // Inicializa e executa cada UrnNode
+        List<Thread> threads = new ArrayList<>();
+        for (UrnConfig config : configs) {
+            UrnNode node = new UrnNode(config);
+            Thread thread = new Thread(() -> {
+                try {
+                    node.start();
+                } catch (Exception e) {
+                    System.err.println(config.urnId + " failed: " + e.getMessage());
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        System.exit(0);
     }
 }
 
 class UrnNode {
     private final UrnConfig config;
-    private final String zkAddress = "127.0.0.1:2181";
+    private final String zkAddress;
     private final SyncPrimitive.Leader leader;
     private final SyncPrimitive.Lock lock;
     private final SyncPrimitive.Queue queue;
-    private final SyncPrimitive.Barrier barrier;
-    private final SyncPrimitive.Barrier auditBarrier;
+    private final SyncPrimitive.QuorumBarrier barrier;
+    private final SyncPrimitive.QuorumBarrier auditBarrier;
     private final SyncPrimitive.DataStore dataStore;
+    private final RegionalStandby standby;
+    private final BuJournal journal;
     private final BuData localBus;
+    private final RetryPolicy retry;
     private final Gson gson = new Gson();
     private volatile boolean canExit = true;
 
+    // Identificador do líder na barreira de auditoria, o mesmo em todas as urnas
+    // (quem assume a liderança não é conhecido ao configurar a barreira)
+    private static final String LEADER_PARTICIPANT_ID = "leader";
+
+    // Folga para o sucessor assumir, ler a fila e obter o lock da apuração total
+    private static final long TOTAL_WAIT_MARGIN_MS = 30000;
+
     /**
      * Construtor que inicializa os primitivos de sincronização e lê o BU da Urna.
      */
     public UrnNode(UrnConfig config) throws Exception {
         this.config = config;
-        this.leader = new SyncPrimitive.Leader(zkAddress, "/leaders/" + config.region, "/leader", config.id);
-        this.lock = new SyncPrimitive.Lock(zkAddress, "/tallies/total");
-        this.queue = new SyncPrimitive.Queue(zkAddress, "/queues/" + config.region);
-        this.barrier = new SyncPrimitive.Barrier(zkAddress, "/urns/" + config.region, config.groupSize);
-        this.auditBarrier = new SyncPrimitive.Barrier(zkAddress, "/audited/" + config.region, config.groupSize + 1); // +1 para o líder
-        this.dataStore = new SyncPrimitive.DataStore(zkAddress);
+        this.zkAddress = config.connectString();
+        SyncPrimitive.configure(config);
+        this.retry = SyncPrimitive.retryPolicy();
         this.localBus = BuReader.readLocalBU(config);
+
+        // Journal local, antes de qualquer acesso ao ZooKeeper: o BU fica gravado mesmo
+        // que o ZooKeeper esteja fora do ar, e BUs não confirmados de uma execução
+        // anterior são reenviados. Um arquivo por eleição e rodada, para que um BU
+        // pendente não vá para outra rodada
+        if (config.journalDir != null) {
+            String prefix = config.electionId != null ? config.electionId + "-" : "";
+            if (config.roundId != null) {
+                prefix += config.roundId + "-";
+            }
+            String fileName = (prefix + config.urnId).replace('/', '_') + ".wal";
+            this.journal = new BuJournal(Paths.get(config.journalDir, fileName));
+            byte[] buData = gson.toJson(localBus).getBytes();
+            if (!journal.isPending(buData)) {
+                journal.append(buData);
+            }
+        } else {
+            this.journal = null;
+        }
+
+        // Cria todo o namespace da eleição de uma vez, antes dos primitivos
+        bootstrapWhenReachable(Arrays.asList(
+            config.path("/leaders/" + config.region),
+            config.path("/tallies/total"),
+            config.path("/queues/" + config.region),
+            config.path("/urns/" + config.region),
+            config.path("/audited/" + config.region),
+            config.path("/progress"),
+            config.path("/metrics"),
+            config.path("/alarms")));
+
+        this.leader = new SyncPrimitive.Leader(zkAddress, config.path("/leaders/" + config.region), config.path("/leader"), config.id);
+        this.lock = new SyncPrimitive.Lock(zkAddress, config.path("/tallies/total"));
+        this.queue = new SyncPrimitive.Queue(zkAddress, config.path("/queues/" + config.region));
+        int quorum = config.barrierQuorum > 0 ? config.barrierQuorum : config.groupSize;
+        this.barrier = new SyncPrimitive.QuorumBarrier(zkAddress, config.path("/urns/" + config.region),
+            config.groupSize, quorum, config.barrierDeadlineMs);
+        this.auditBarrier = new SyncPrimitive.QuorumBarrier(zkAddress, config.path("/audited/" + config.region),
+            config.groupSize + 1, quorum + 1, config.barrierDeadlineMs); // +1 para o líder
+        if (config.regionUrns != null) {
+            barrier.setExpected(config.regionUrns);
+            List<String> auditors = new ArrayList<>(config.regionUrns);
+            auditors.add(LEADER_PARTICIPANT_ID);
+            auditBarrier.setExpected(auditors);
+        }
+        this.dataStore = new SyncPrimitive.DataStore(zkAddress);
+        this.standby = config.hotStandby
+            ? new RegionalStandby(zkAddress, config.region,
+                config.path("/queues/" + config.region), config.path("/progress/" + config.region))
+            : null;
+        if (standby != null) {
+            leader.onSuccessor(standby::start);
+        }
+        if (journal != null) {
+            new JournalFlusher(journal, queue, config.journalBatchSize).start();
+        }
+    }
+
+    /**
+     * Cria o namespace da eleição, aguardando o ZooKeeper enquanto ele estiver
+     * inacessível (o BU já está no journal, se houver).
+     */
+    private void bootstrapWhenReachable(List<String> paths) throws InterruptedException {
+        while (true) {
+            try {
+                SyncPrimitive.bootstrap(zkAddress, paths);
+                if (SyncPrimitive.isConnected()) return;
+            } catch (KeeperException e) {
+                System.err.println("Could not create election namespace: " + e.getMessage());
+            }
+            System.out.println(config.urnId + " waiting for ZooKeeper at " + zkAddress + "...");
+            Thread.sleep(Math.max(1000, config.retryBackoffMs));
+        }
     }
 
     /**
@@ -63,7 +177,7 @@ class UrnNode {
      */
     public void start() throws Exception {
         submitLocalBu();
-        enterBarrier(barrier, "submission");
+        enterBarrier(barrier, config.urnId, true, "submission");
 
         // Processo de liderança em thread separada
         new Thread(this::tryBecomeLeader).start();
@@ -74,11 +188,29 @@ class UrnNode {
 
     /**
      * Envia o BU local para o Zookeeper usando a fila.
+     * Com o journal, o BU já foi gravado localmente no construtor e é enviado pelo
+     * flusher assim que houver conexão; a urna aguarda a confirmação antes de seguir
+     * para a barreira.
      */
     private void submitLocalBu() {
         System.out.println(config.urnId + " submitting BU...");
+        byte[] buData = gson.toJson(localBus).getBytes();
+        if (journal != null) {
+            try {
+                while (!journal.awaitFlushed(5000)) {
+                    System.out.println(config.urnId + " waiting for ZooKeeper to submit journaled BU...");
+                }
+            } catch (InterruptedException e) {
+                System.err.println("Interrupted while submitting BU: " + e.getMessage());
+            }
+            return;
+        }
         try {
-            queue.produce(gson.toJson(localBus).getBytes());
+            // Nome determinístico: uma nova tentativa após timeout não duplica o BU
+            boolean created = retry.run(() -> queue.produce(localBus.queueElementName(), buData));
+            if (!created) {
+                System.out.println(config.urnId + " BU was already queued");
+            }
         } catch (Exception e) {
             System.err.println("Error submitting BU: " + e.getMessage());
         }
@@ -89,12 +221,26 @@ class UrnNode {
      */
     private void tryBecomeLeader() {
         try {
-            leader.elect();
+            // Se a sessão expirar na fila da eleição, volta a ela com a nova sessão
+            while (true) {
+                try {
+                    leader.elect();
+                    break;
+                } catch (KeeperException.SessionExpiredException e) {
+                    System.err.println(config.urnId + " session expired while waiting for leadership, rejoining election");
+                    Thread.sleep(config.retryBackoffMs);
+                }
+            }
             System.out.println(config.urnId + " is now LEADER of region " + config.region);
             canExit = false;
             LeaderProcessing();
+        } catch (KeeperException.SessionExpiredException e) {
+            // Outro nó já pode ter assumido: nada mais é gravado por este líder
+            System.err.println(config.urnId + " lost leadership with its session, aborting leader processing");
         } catch (Exception e) {
             System.err.println("Leadership election failed: " + e.getMessage());
+        } finally {
+            canExit = true;
         }
     }
 
@@ -103,66 +249,219 @@ class UrnNode {
      * e atualiza o resultado total com exclusividade.
      */
     private void LeaderProcessing() throws Exception {
-        RegionalTally tally = new RegionalTally(config.region);
+        String nodePath = config.path("/tallies/" + config.region);
+        String progressPath = config.path("/progress/" + config.region);
+
+        // Com standby, parte da apuração espelhada do líder anterior (se houver)
+        RegionalTally tally = (standby != null)
+            ? standby.takeOver()
+            : new RegionalTally(config.region);
+        BuDedupeIndex dedupe = new BuDedupeIndex();
+        for (BuData bu : tally.urnBus.values()) {
+            dedupe.accept(bu);
+        }
+        // O standby já leu a fila: a primeira leitura de cada BU espelhado não é um reenvio
+        Set<String> mirrored = new HashSet<>(tally.urnBus.keySet());
+        boolean published = false;
+        if (!tally.urnBus.isEmpty()) {
+            publishProgress(progressPath, tally);
+        }
+        if (tally.urnBus.size() >= config.groupSize) {
+            storeRegionalTally(nodePath, tally);
+            published = true;
+            System.out.println("Published regional tally from mirrored BUs");
+        }
 
         // Consome todos os BUs da fila e agrega na apuração regional
         byte[] data;
-        while ((data = queue.consumeBytes()) != null) {
+        boolean changed = false;
+        while ((data = queue.consumeBytes(leader.session())) != null) {
             BuData bu = new BuData(new String(data));
+            if (mirrored.remove(bu.urnId)
+                    && bu.contentHash().equals(tally.urnBus.get(bu.urnId).contentHash())) {
+                continue; // Já recebido pelo espelho do standby
+            }
+            if (!isNewBu(dedupe, bu)) {
+                continue; // Reenvio do mesmo BU
+            }
             tally.mergeBu(bu);
+            changed = true;
             System.out.println("Consolidated votes from " + bu.urnId);
+            publishProgress(progressPath, tally);
         }
 
         // Salva a apuração regional no Zookeeper
-        String nodePath = "/tallies/" + config.region;
-        byte[] tallyData = gson.toJson(tally).getBytes();
-        dataStore.store(nodePath, tallyData);
-        System.out.println("Regional tally completed and stored");
+        if (!published || changed) {
+            storeRegionalTally(nodePath, tally);
+        }
+
+        // BUs atrasados entram antes da auditoria: a janela começa com a publicação,
+        // como a dos seguidores, que só auditam depois de ver o próprio BU
+        if (config.lateArrivalWindowMs > 0 && tally.urnBus.size() < config.groupSize) {
+            mergeLateArrivals(nodePath, progressPath, tally, dedupe);
+        }
+        publishDedupeMetrics(dedupe);
 
         // Aguarda auditoria dos seguidores
-        enterBarrier(auditBarrier, "audit as leader");
+        SyncPrimitive.QuorumBarrier.Result audit = enterBarrier(auditBarrier, LEADER_PARTICIPANT_ID, true, "audit as leader");
+        if (audit != null && !audit.failed.isEmpty()) {
+            System.err.println(config.region + " audit failed for " + audit.failed + ", total tally not updated");
+            // Alarme da região: avisa as urnas que aguardam a apuração total que ela não virá
+            String alarmMsg = config.region + " total tally not updated, audit failed for " + audit.failed;
+            storeAsLeader(regionAlarmPath(), alarmMsg.getBytes(), CreateMode.PERSISTENT);
+            return;
+        }
         System.out.println(config.region + " passed audit barrier, updating total tally...");
 
         // Atualiza apuração total com exclusividade
+        updateTotalTally(tally);
+
+        // Marca a rodada como terminada, para que possa ser apagada depois
+        if (config.roundId != null) {
+            byte[] finishedAt = Long.toString(System.currentTimeMillis()).getBytes();
+            storeAsLeader(config.path("/" + ElectionRounds.FINISHED_NODE), finishedAt, CreateMode.PERSISTENT);
+        }
+    }
+
+    /**
+     * Mescla a apuração regional na apuração total, com exclusividade.
+     */
+    private void updateTotalTally(RegionalTally regional) throws Exception {
         lock.lock();
         System.out.println(config.urnId + " acquired lock for total tally update");
         Thread.sleep(2000); // Apenas para demonstrar o bloqueio
 
         try {
-            String totalTallyPath = "/tallies/total";
-            byte[] totalData = dataStore.retrieve(totalTallyPath);
+            String totalTallyPath = config.path("/tallies/total");
+            byte[] totalData = retry.run(() -> dataStore.retrieve(totalTallyPath));
 
-            RegionalTally totalTally = (totalData != null)
-                ? new RegionalTally(new String(totalData))
+            // O nó existe vazio (criado pelo bootstrap e pelo lock) até a primeira gravação
+            RegionalTally totalTally = (totalData != null && totalData.length > 0)
+                ? RegionalTally.fromJson(new String(totalData))
                 : new RegionalTally("total");
 
-            totalTally.mergeTally(tally);
+            totalTally.mergeTally(regional);
 
             byte[] newTotalData = gson.toJson(totalTally).getBytes();
-            dataStore.store(totalTallyPath, newTotalData);
+            if (!retry.run(() -> storeAsLeader(totalTallyPath, newTotalData, CreateMode.PERSISTENT))) {
+                throw new IllegalStateException("Could not store total tally at " + totalTallyPath);
+            }
 
             System.out.println("Total tally updated and stored");
+
+            if (config.resultsExportPath != null) {
+                ColumnarResultsWriter.write(totalTally, Paths.get(config.resultsExportPath));
+                System.out.println("Total tally exported to " + config.resultsExportPath);
+            }
         } finally {
             lock.unlock();
-            canExit = true;
-            System.exit(0);
         }
     }
 
+    /**
+     * Durante a janela de atrasados, consome os BUs que chegam após a publicação e
+     * atualiza a apuração regional publicada a cada um, até a região ficar completa.
+     */
+    private void mergeLateArrivals(String nodePath, String progressPath, RegionalTally tally,
+            BuDedupeIndex dedupe) throws Exception {
+        System.out.println("Accepting late BUs for up to " + config.lateArrivalWindowMs + " ms...");
+        long deadline = System.currentTimeMillis() + config.lateArrivalWindowMs;
+        while (tally.urnBus.size() < config.groupSize && System.currentTimeMillis() < deadline) {
+            byte[] data = queue.consumeBytes(leader.session());
+            if (data == null) {
+                Thread.sleep(500);
+                continue;
+            }
+            BuData bu = new BuData(new String(data));
+            if (!isNewBu(dedupe, bu)) {
+                continue;
+            }
+            tally.mergeBu(bu);
+            publishProgress(progressPath, tally);
+            storeRegionalTally(nodePath, tally);
+            System.out.println("Late BU from " + bu.urnId + " merged into published tally");
+        }
+    }
+
+    /**
+     * Consulta o índice de deduplicação, avisando sobre BUs divergentes.
+     * @return true se o BU ainda não foi consolidado
+     */
+    private boolean isNewBu(BuDedupeIndex dedupe, BuData bu) {
+        BuDedupeIndex.Result result = dedupe.accept(bu);
+        if (result == BuDedupeIndex.Result.CONFLICT) {
+            System.err.println("Conflicting BU from " + bu.urnId + " ignored");
+        }
+        return result == BuDedupeIndex.Result.NEW;
+    }
+
+    /**
+     * Publica a apuração parcial para o standby (efêmera: some se este líder cair).
+     */
+    private void publishProgress(String progressPath, RegionalTally tally) throws Exception {
+        byte[] progressData = gson.toJson(tally).getBytes();
+        retry.run(() -> storeAsLeader(progressPath, progressData, CreateMode.EPHEMERAL));
+    }
+
+    /**
+     * Publica em /metrics/<região> quantos BUs repetidos ou divergentes foram ignorados.
+     */
+    private void publishDedupeMetrics(BuDedupeIndex dedupe) {
+        System.out.println("Skipped " + dedupe.duplicatesSkipped + " duplicate and "
+            + dedupe.conflicts + " conflicting BUs");
+        Map<String, Integer> metrics = new LinkedHashMap<>();
+        metrics.put("duplicatesSkipped", dedupe.duplicatesSkipped);
+        metrics.put("conflicts", dedupe.conflicts);
+        try {
+            storeAsLeader(config.path("/metrics/" + config.region), gson.toJson(metrics).getBytes(), CreateMode.PERSISTENT);
+        } catch (Exception e) {
+            System.err.println("Error storing metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Grava como líder: falha com SessionExpired se a sessão em que a liderança foi
+     * obtida expirou, para que um líder destituído não sobrescreva o sucessor.
+     */
+    private boolean storeAsLeader(String path, byte[] data, CreateMode mode) throws KeeperException, InterruptedException {
+        return dataStore.store(path, data, mode, leader.session());
+    }
+
+    /**
+     * Salva a apuração regional no Zookeeper.
+     */
+    private void storeRegionalTally(String nodePath, RegionalTally tally) throws Exception {
+        byte[] tallyData = gson.toJson(tally).getBytes();
+        retry.run(() -> storeAsLeader(nodePath, tallyData, CreateMode.PERSISTENT));
+        System.out.println("Regional tally completed and stored");
+    }
+
     /**
      * Executa o modo seguidor, auditando a apuração regional e criando alarmes em caso de falha.
      */
     private void startFollowerMode() {
         System.out.println(config.urnId + " running as FOLLOWER in region " + config.region);
 
-        String nodePath = "/tallies/" + config.region;
-        byte[] tallyData = null;
+        String nodePath = config.path("/tallies/" + config.region);
+        RegionalTally tally = null;
+        long lateDeadline = 0;
 
-        // Aguarda até que a apuração regional esteja disponível
-        while (tallyData == null) {
+        // Aguarda até que a apuração regional esteja disponível; com a janela de
+        // atrasados, aguarda também que ela inclua o BU desta urna
+        while (tally == null) {
             try {
-                tallyData = dataStore.retrieve(nodePath);
-                if (tallyData == null) {
+                byte[] tallyData = dataStore.retrieve(nodePath);
+                if (tallyData != null) {
+                    RegionalTally published = RegionalTally.fromJson(new String(tallyData));
+                    if (config.lateArrivalWindowMs <= 0 || published.urnBus.containsKey(config.urnId)) {
+                        tally = published;
+                    } else if (lateDeadline == 0) {
+                        lateDeadline = System.currentTimeMillis() + config.lateArrivalWindowMs;
+                    } else if (System.currentTimeMillis() > lateDeadline) {
+                        tally = published;
+                    }
+                }
+                if (tally == null) {
                     Thread.sleep(1000);
                 }
             } catch (Exception e) {
@@ -171,16 +470,12 @@ class UrnNode {
             }
         }
 
-        RegionalTally tally = new RegionalTally(new String(tallyData));
-
         // Auditoria da apuração
         boolean auditPassed = auditTally(tally, localBus, config.urnId);
         System.out.println(config.urnId + " audit: " + (auditPassed ? "PASSED" : "FAILED"));
 
-        if (auditPassed) {
-            enterBarrier(auditBarrier, "audit");
-        } else {
-            String alarmPath = "/alarms/" + config.urnId;
+        if (!auditPassed) {
+            String alarmPath = config.path("/alarms/" + config.urnId);
             String alarmMsg = config.urnId + " audit failed in region " + config.region;
             try {
                 dataStore.store(alarmPath, alarmMsg.getBytes());
@@ -190,14 +485,60 @@ class UrnNode {
             }
         }
 
+        // Urnas com auditoria falha também entram na barreira, para não contarem como ausentes
+        SyncPrimitive.QuorumBarrier.Result audit = enterBarrier(auditBarrier, config.urnId, auditPassed, "audit");
+
+        // Continua na eleição até a apuração total incluir este BU: se o líder cair
+        // antes de gravá-la, esta urna ainda pode sucedê-lo
+        if (auditPassed && audit != null && audit.failed.isEmpty()) {
+            awaitTotalTally();
+        }
+
         // Aguarda até que a thread de líder termine antes de sair
+        while (!canExit) {
+            try { Thread.sleep(100); } catch (InterruptedException ignored) {}
+        }
+    }
+
+    /**
+     * Aguarda até que a apuração total contenha o BU desta urna, até o líder desistir
+     * dela (alarme da região) ou até o prazo: tempo para a sessão de um líder caído
+     * expirar, mais a barreira de auditoria do sucessor e TOTAL_WAIT_MARGIN_MS.
+     */
+    private void awaitTotalTally() {
+        String totalTallyPath = config.path("/tallies/total");
+        long deadline = System.currentTimeMillis() + config.sessionTimeoutMs
+            + config.barrierDeadlineMs + TOTAL_WAIT_MARGIN_MS;
         while (true) {
-            if (canExit) {
-                System.exit(0);
+            try {
+                byte[] totalData = dataStore.retrieve(totalTallyPath);
+                if (totalData != null && totalData.length > 0
+                        && RegionalTally.fromJson(new String(totalData)).urnBus.containsKey(config.urnId)) {
+                    return;
+                }
+                if (dataStore.retrieve(regionAlarmPath()) != null) {
+                    System.err.println(config.region + " leader gave up on the total tally");
+                    return;
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    System.err.println(config.urnId + " timed out waiting for the total tally");
+                    return;
+                }
+                Thread.sleep(1000);
+            } catch (Exception e) {
+                System.err.println("Error retrieving total tally: " + e.getMessage());
+                try { Thread.sleep(1000); } catch (InterruptedException ignored) {}
             }
         }
     }
 
+    /**
+     * Alarme criado pelo líder quando a apuração total da região não é atualizada.
+     */
+    private String regionAlarmPath() {
+        return config.path("/alarms/" + config.region);
+    }
+
     /**
      * Realiza a auditoria da apuração regional.
      */
@@ -210,14 +551,23 @@ class UrnNode {
 
     /**
      * Helper para entrar em barreiras de sincronização.
+     * @return Resultado da barreira, ou null em caso de erro
      */
-    private void enterBarrier(SyncPrimitive.Barrier barrier, String action) {
+    private SyncPrimitive.QuorumBarrier.Result enterBarrier(SyncPrimitive.QuorumBarrier barrier,
+            String participantId, boolean ok, String action) {
         try {
             System.out.println(config.urnId + " entering " + action + " barrier...");
-            barrier.enter();
-            System.out.println(action + " barrier passed!");
+            SyncPrimitive.QuorumBarrier.Result result = barrier.enter(participantId, ok);
+            if (result.complete) {
+                System.out.println(action + " barrier passed!");
+            } else {
+                System.out.println(action + " barrier released with " + result.missingCount + " missing"
+                    + (result.missing.isEmpty() ? "" : ": " + result.missing));
+            }
+            return result;
         } catch (Exception e) {
             System.err.println("Error entering " + action + " barrier: " + e.getMessage());
+            return null;
         }
     }
 }
\ No newline at end of file
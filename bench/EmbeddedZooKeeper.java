@@ -0,0 +1,86 @@
+/**
+ * Servidor ZooKeeper embutido para os benchmarks.
+ * 
+ * Sobe um servidor standalone em um diretório temporário, permitindo que os
+ * benchmarks controlem o ciclo de vida do servidor e injetem falhas, como a
+ * expiração forçada de sessões.
+ * 
+ * Observação: o servidor do ZooKeeper 3.9 depende do metrics-core
+ * (io.dropwizard.metrics) e do snappy-java (org.xerial.snappy) em tempo de
+ * execução, incluídos na pasta lib. Se o servidor não subir, o construtor
+ * encerra o que já foi iniciado e lança IOException.
+ */
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+
+public class EmbeddedZooKeeper implements AutoCloseable {
+    private final Path dataDir;
+    private final ZooKeeperServer server;
+    private final ServerCnxnFactory factory;
+
+    /**
+     * Inicia um servidor embutido.
+     * @param port Porta do cliente (0 para uma porta livre qualquer)
+     * @param tickTime Tick do servidor em ms; o timeout mínimo de sessão é 2 * tickTime
+     */
+    public EmbeddedZooKeeper(int port, int tickTime) throws IOException, InterruptedException {
+        this.dataDir = Files.createTempDirectory("sd-zk");
+        File dir = dataDir.toFile();
+        ZooKeeperServer server = null;
+        ServerCnxnFactory factory = null;
+        try {
+            server = new ZooKeeperServer(dir, dir, tickTime);
+            factory = ServerCnxnFactory.createFactory(new InetSocketAddress("127.0.0.1", port), 1000);
+            factory.startup(server);
+        } catch (Exception | LinkageError e) {
+            // As threads de NIO não são daemon: sem encerrar a factory, a JVM não terminaria
+            if (factory != null) factory.shutdown();
+            if (server != null) server.shutdown();
+            deleteDataDir();
+            throw new IOException("Could not start embedded ZooKeeper"
+                + " (metrics-core and snappy-java must be in lib): " + e, e);
+        }
+        this.server = server;
+        this.factory = factory;
+    }
+
+    /**
+     * String de conexão para os clientes deste servidor.
+     */
+    public String connectString() {
+        return "127.0.0.1:" + factory.getLocalPort();
+    }
+
+    /**
+     * Expira a sessão no servidor, como se o cliente tivesse parado de responder.
+     * @param sessionId Identificador da sessão (ex: ephemeralOwner de um znode)
+     */
+    public void expireSession(long sessionId) {
+        server.expire(sessionId);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Encerra o servidor por completo, sem reler o log de transações que será apagado;
+        // a factory então só fecha as conexões (o servidor já parado é ignorado)
+        server.shutdown(true);
+        factory.shutdown();
+        deleteDataDir();
+    }
+
+    private void deleteDataDir() throws IOException {
+        try (Stream<Path> files = Files.walk(dataDir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * Benchmark de injeção de falhas na liderança regional.
+ * 
+ * Para cada rodada, sobe um ZooKeeper embutido, inicia uma urna por processo
+ * (UrnNodeApplication) e, na fase escolhida, derruba o Superpeer:
+ * - election: assim que o líder é eleito (início do LeaderProcessing).
+ * - lock: enquanto o líder segura o lock de /tallies/total (o nó do lock é o primeiro,
+ *   pertence à sessão do líder e o log do líder registra a aquisição).
+ * 
+ * A falha pode ser a morte do processo (kill), cuja sessão só expira após o
+ * timeout de sessão, ou a expiração imediata da sessão no servidor (expire).
+ * 
+ * As urnas seguidoras continuam na eleição até a apuração total conter seus BUs,
+ * então sempre há um sucessor. Como a urna derrubada não volta à barreira de
+ * auditoria, as barreiras usam um prazo (BARRIER_DEADLINE_MS): o tempo até a
+ * apuração total final inclui a espera por esse prazo.
+ * 
+ * Mede, a partir da injeção da falha:
+ * - Tempo até um novo líder assumir.
+ * - Tempo até o lock da apuração total ser liberado (fase lock).
+ * - Tempo até a apuração total conter os BUs de todas as urnas.
+ */
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import com.google.gson.Gson;
+import common.RegionalTally;
+import common.UrnConfig;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.data.Stat;
+
+public class FailoverBenchmark {
+    private static final String REGION = "CHAOS";
+    private static final long POLL_MS = 5;
+    private static final long BARRIER_DEADLINE_MS = 5000;
+    private static final String LOCK_ACQUIRED_LOG = "acquired lock for total tally update"; // Ver UrnNode.updateTotalTally
+
+    /**
+     * Resultado de uma rodada; null indica que o evento não ocorreu dentro do tempo limite.
+     */
+    static class RunResult {
+        Long newLeaderMs;
+        Long lockReleaseMs;
+        Long finalTotalMs;
+        boolean lockTracked;
+    }
+
+    /**
+     * Alvo da falha: o líder e, na fase lock, o znode do lock que ele segura.
+     */
+    static class Target {
+        String leaderId;
+        long sessionId;
+        String lockNode;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: java bench.FailoverBenchmark <election|lock> <kill|expire> [urns] [runs] [sessionTimeoutMs]");
+            System.exit(1);
+        }
+        String phase = args[0];
+        String fault = args[1];
+        if (!phase.equals("election") && !phase.equals("lock")) {
+            System.err.println("Unknown phase: " + phase);
+            System.exit(1);
+        }
+        if (!fault.equals("kill") && !fault.equals("expire")) {
+            System.err.println("Unknown fault: " + fault);
+            System.exit(1);
+        }
+        int urns = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        int sessionTimeoutMs = args.length > 4 ? Integer.parseInt(args[4]) : 3000;
+        long timeoutMs = Math.max(30000, 10L * sessionTimeoutMs);
+
+        List<RunResult> results = new ArrayList<>();
+        for (int run = 1; run <= runs; run++) {
+            System.out.println("Run " + run + "/" + runs + " (" + phase + ", " + fault + ", " + urns + " urns)");
+            RunResult result;
+            try {
+                result = runOnce(phase, fault, urns, sessionTimeoutMs, timeoutMs);
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+                return;
+            }
+            System.out.println("  new leader: " + format(result.newLeaderMs)
+                + ", lock release: " + (result.lockTracked ? format(result.lockReleaseMs) : "-")
+                + ", final total: " + format(result.finalTotalMs));
+            results.add(result);
+        }
+
+        System.out.println();
+        System.out.println("metric             observed  median(ms)  max(ms)");
+        printSummary("time-to-new-leader", results, r -> r.newLeaderMs);
+        if (phase.equals("lock")) {
+            printSummary("time-to-lock-release", results, r -> r.lockReleaseMs);
+        }
+        printSummary("time-to-final-total", results, r -> r.finalTotalMs);
+    }
+
+    private static RunResult runOnce(String phase, String fault, int urns, int sessionTimeoutMs, long timeoutMs) throws Exception {
+        RunResult result = new RunResult();
+        Path workDir = Files.createTempDirectory("sd-chaos");
+        List<Process> processes = new ArrayList<>();
+        // O timeout mínimo de sessão aceito pelo servidor é 2 * tickTime
+        int tickTime = Math.max(1, Math.min(2000, sessionTimeoutMs / 2));
+
+        try (EmbeddedZooKeeper server = new EmbeddedZooKeeper(0, tickTime)) {
+            ZooKeeper zk = new ZooKeeper(server.connectString(), 10000, event -> {});
+            try {
+                awaitConnected(zk, timeoutMs);
+                for (int i = 1; i <= urns; i++) {
+                    processes.add(startUrn(workDir, server.connectString(), i, urns, sessionTimeoutMs));
+                }
+
+                long deadline = System.currentTimeMillis() + timeoutMs;
+                Target target = awaitFaultPoint(zk, workDir, phase, deadline);
+                if (target == null) {
+                    System.err.println("  fault point not reached, logs in " + workDir);
+                    return result;
+                }
+
+                long start = System.nanoTime();
+                if (fault.equals("kill")) {
+                    processes.get(Integer.parseInt(target.leaderId) - 1).destroyForcibly();
+                } else {
+                    server.expireSession(target.sessionId);
+                }
+                System.out.println("  " + fault + " leader " + target.leaderId + " during " + phase);
+
+                result.lockTracked = target.lockNode != null;
+                deadline = System.currentTimeMillis() + timeoutMs;
+                while (System.currentTimeMillis() < deadline) {
+                    long elapsed = (System.nanoTime() - start) / 1_000_000;
+                    if (result.newLeaderMs == null) {
+                        byte[] data = getDataOrNull(zk, "/leader", null);
+                        if (data != null && !target.leaderId.equals(new String(data))) {
+                            result.newLeaderMs = elapsed;
+                        }
+                    }
+                    if (result.lockTracked && result.lockReleaseMs == null && zk.exists(target.lockNode, false) == null) {
+                        result.lockReleaseMs = elapsed;
+                    }
+                    if (result.finalTotalMs == null) {
+                        byte[] data = getDataOrNull(zk, "/tallies/total", null);
+                        // O nó existe vazio (criado pelo bootstrap) até o primeiro líder gravar o total
+                        if (data != null && data.length > 0) {
+                            RegionalTally total = RegionalTally.fromJson(new String(data));
+                            if (total.urnBus != null && total.urnBus.size() == urns) {
+                                result.finalTotalMs = elapsed;
+                            }
+                        }
+                    }
+                    if (result.newLeaderMs != null && result.finalTotalMs != null
+                            && (!result.lockTracked || result.lockReleaseMs != null)) {
+                        break;
+                    }
+                    Thread.sleep(POLL_MS);
+                }
+                if (result.finalTotalMs == null) {
+                    System.err.println("  final total not reached, logs in " + workDir);
+                }
+            } finally {
+                for (Process p : processes) {
+                    p.destroyForcibly();
+                }
+                zk.close();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Escreve a configuração da urna e a inicia em um processo separado.
+     */
+    private static Process startUrn(Path workDir, String zkConnect, int id, int urns, int sessionTimeoutMs) throws Exception {
+        UrnConfig config = new UrnConfig();
+        config.urnId = "urn-chaos-" + id;
+        config.region = REGION;
+        config.groupSize = urns;
+        config.id = id;
+        config.votes = new HashMap<>();
+        config.votes.put("Candidate A", 100 + id);
+        config.votes.put("Candidate B", 100 - id);
+        config.sessionTimeoutMs = sessionTimeoutMs;
+        config.zkConnect = zkConnect;
+        config.barrierDeadlineMs = Math.max(BARRIER_DEADLINE_MS, 2L * sessionTimeoutMs);
+
+        Path configFile = workDir.resolve(config.urnId + ".config.json");
+        Files.write(configFile, new Gson().toJson(config).getBytes());
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder pb = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+            "UrnNodeApplication", configFile.toString());
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(new File(workDir.toFile(), config.urnId + ".log"));
+        return pb.start();
+    }
+
+    /**
+     * Aguarda o momento de injetar a falha e identifica o líder a ser derrubado.
+     */
+    private static Target awaitFaultPoint(ZooKeeper zk, Path workDir, String phase, long deadline)
+            throws KeeperException, InterruptedException, IOException {
+        while (System.currentTimeMillis() < deadline) {
+            Stat stat = new Stat();
+            byte[] leader = getDataOrNull(zk, "/leader", stat);
+            if (leader != null) {
+                Target target = new Target();
+                target.leaderId = new String(leader);
+                target.sessionId = stat.getEphemeralOwner();
+                if (phase.equals("election")) {
+                    return target;
+                }
+                List<String> locks = getChildrenOrEmpty(zk, "/tallies/total");
+                locks.removeIf(name -> !name.startsWith("lock-"));
+                if (!locks.isEmpty()) {
+                    Collections.sort(locks);
+                    String lockNode = "/tallies/total/" + locks.get(0);
+                    Stat lockStat = zk.exists(lockNode, false);
+                    // O nó pode existir antes da aquisição: espera o líder registrá-la no log
+                    if (lockStat != null && lockStat.getEphemeralOwner() == target.sessionId
+                            && logContains(workDir, target.leaderId, LOCK_ACQUIRED_LOG)) {
+                        target.lockNode = lockNode;
+                        return target;
+                    }
+                }
+            }
+            Thread.sleep(POLL_MS);
+        }
+        return null;
+    }
+
+    /**
+     * Verifica se o log da urna contém a mensagem.
+     */
+    private static boolean logContains(Path workDir, String id, String text) throws IOException {
+        Path log = workDir.resolve("urn-chaos-" + id + ".log");
+        if (!Files.exists(log)) return false;
+        return new String(Files.readAllBytes(log)).contains(text);
+    }
+
+    private static void awaitConnected(ZooKeeper zk, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!zk.getState().isConnected()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Could not connect to embedded ZooKeeper");
+            }
+            Thread.sleep(POLL_MS);
+        }
+    }
+
+    private static byte[] getDataOrNull(ZooKeeper zk, String path, Stat stat) throws KeeperException, InterruptedException {
+        try {
+            return zk.getData(path, false, stat);
+        } catch (KeeperException.NoNodeException e) {
+            return null;
+        }
+    }
+
+    private static List<String> getChildrenOrEmpty(ZooKeeper zk, String path) throws KeeperException, InterruptedException {
+        try {
+            return new ArrayList<>(zk.getChildren(path, false));
+        } catch (KeeperException.NoNodeException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    private interface Metric {
+        Long get(RunResult result);
+    }
+
+    private static void printSummary(String name, List<RunResult> results, Metric metric) {
+        List<Long> values = new ArrayList<>();
+        for (RunResult r : results) {
+            if (metric.get(r) != null) values.add(metric.get(r));
+        }
+        Collections.sort(values);
+        String median = values.isEmpty() ? "-" : Long.toString(values.get(values.size() / 2));
+        String max = values.isEmpty() ? "-" : Long.toString(values.get(values.size() - 1));
+        System.out.println(String.format("%-20s %4d/%-4d %10s %8s", name, values.size(), results.size(), median, max));
+    }
+
+    private static String format(Long ms) {
+        return ms == null ? "timeout" : ms + " ms";
+    }
+}
@@ -0,0 +1,321 @@
+/**
+ * Micro-benchmark das primitivas de sincronização (SyncPrimitive).
+ * 
+ * Executa, contra um ZooKeeper embutido ou externo:
+ * - queue: produce e consume concorrentes na mesma fila.
+ * - lock: aquisição e liberação do lock disputado por várias threads, e o tempo de
+ *   passagem do lock (da liberação até a próxima aquisição).
+ * - barrier: tempo de liberação da QuorumBarrier após a chegada do último participante,
+ *   para cada tamanho de grupo.
+ * - election: tempo até o primeiro líder e de sucessão após stepDown, para cada tamanho de grupo.
+ * 
+ * Para cada métrica são reportados ops/s e as latências p50/p99/p999, também gravados em
+ * um arquivo JSON para comparar implementações. queue e lock executam ops operações no
+ * total; barrier e election executam max(5, ops / 100) rodadas por tamanho de grupo,
+ * número gravado no relatório (rounds).
+ * 
+ * Limitação: todas as threads compartilham a sessão única do processo e o mutex global do
+ * SyncPrimitive, como as urnas de um mesmo processo. As requisições passam por uma só
+ * conexão e cada evento acorda todas as threads em espera, então os números medem
+ * clientes em um processo, não processos independentes; para isso, execute várias
+ * instâncias do benchmark contra o mesmo ZooKeeper externo.
+ */
+package bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import common.ElectionRounds;
+import common.SyncPrimitive;
+
+public class PrimitiveBenchmark {
+    private static final String ROOT = "/bench";
+
+    /**
+     * Resultado de uma métrica, como gravado no arquivo de saída.
+     */
+    static class Result {
+        String name;
+        Integer groupSize;
+        int count;
+        double opsPerSec;
+        double p50Ms;
+        double p99Ms;
+        double p999Ms;
+        double maxMs;
+    }
+
+    /**
+     * Arquivo de saída com os parâmetros da execução e os resultados.
+     */
+    static class Report {
+        long timestamp = System.currentTimeMillis();
+        String target;
+        int threads;
+        int ops;
+        int rounds; // Rodadas de barrier e election por tamanho de grupo
+        List<Integer> groupSizes;
+        List<Result> results = new ArrayList<>();
+    }
+
+    /**
+     * Latências coletadas por várias threads.
+     */
+    static class Samples {
+        private final List<Long> nanos = Collections.synchronizedList(new ArrayList<>());
+
+        void add(long value) {
+            nanos.add(value);
+        }
+    }
+
+    private interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java bench.PrimitiveBenchmark <embedded|zk-address> [threads] [ops] [group-sizes] [out-file]");
+            System.err.println("       e.g. java bench.PrimitiveBenchmark embedded 4 1000 2,4,8 bench-results.json");
+            System.exit(1);
+        }
+        Report report = new Report();
+        report.target = args[0];
+        report.threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        report.ops = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        report.groupSizes = new ArrayList<>();
+        for (String size : (args.length > 3 ? args[3] : "2,4,8").split(",")) {
+            report.groupSizes.add(Integer.parseInt(size.trim()));
+        }
+        String outFile = args.length > 4 ? args[4] : "bench-results.json";
+
+        EmbeddedZooKeeper server = null;
+        if (report.target.equals("embedded")) {
+            try {
+                server = new EmbeddedZooKeeper(0, 2000);
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+            }
+        }
+        String address = server != null ? server.connectString() : report.target;
+        String runId = "run-" + report.timestamp;
+        String runRoot = ROOT + "/" + runId;
+        ElectionRounds cleanup = new ElectionRounds(address, ROOT);
+
+        try {
+            benchQueue(address, runRoot, report);
+            benchLock(address, runRoot, report);
+            report.rounds = Math.max(5, report.ops / 100);
+            for (int groupSize : report.groupSizes) {
+                benchBarrier(address, runRoot, groupSize, report.rounds, report);
+                benchElection(address, runRoot, groupSize, report.rounds, report);
+            }
+        } finally {
+            cleanup.reset(runId, true); // Rodada do benchmark: nunca marcada como terminada
+            if (server != null) server.close();
+        }
+
+        System.out.println();
+        System.out.println(report.threads + " threads, " + report.ops + " ops, "
+            + report.rounds + " barrier/election rounds per group size");
+        System.out.println(String.format("%-18s %6s %8s %12s %9s %9s %9s %9s",
+            "metric", "group", "count", "ops/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)"));
+        for (Result r : report.results) {
+            System.out.println(String.format("%-18s %6s %8d %12.1f %9.3f %9.3f %9.3f %9.3f",
+                r.name, r.groupSize == null ? "-" : r.groupSize.toString(), r.count, r.opsPerSec,
+                r.p50Ms, r.p99Ms, r.p999Ms, r.maxMs));
+        }
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        try (Writer writer = Files.newBufferedWriter(Paths.get(outFile))) {
+            gson.toJson(report, writer);
+        }
+        System.out.println("Results written to " + outFile);
+        System.exit(0);
+    }
+
+    /**
+     * Produz ops elementos divididos entre as threads e depois os consome concorrentemente.
+     */
+    private static void benchQueue(String address, String runRoot, Report report) throws Exception {
+        String root = runRoot + "/queue";
+        byte[] value = new byte[64];
+        int perThread = Math.max(1, report.ops / report.threads);
+
+        Samples produce = new Samples();
+        long wall = runThreads(report.threads, t -> {
+            SyncPrimitive.Queue queue = new SyncPrimitive.Queue(address, root);
+            for (int i = 0; i < perThread; i++) {
+                long start = System.nanoTime();
+                queue.produce(value);
+                produce.add(System.nanoTime() - start);
+            }
+        });
+        report.results.add(summarize("queue.produce", null, produce, wall));
+
+        Samples consume = new Samples();
+        wall = runThreads(report.threads, t -> {
+            SyncPrimitive.Queue queue = new SyncPrimitive.Queue(address, root);
+            while (true) {
+                long start = System.nanoTime();
+                if (queue.consumeBytes() == null) break;
+                consume.add(System.nanoTime() - start);
+            }
+        });
+        report.results.add(summarize("queue.consume", null, consume, wall));
+    }
+
+    /**
+     * Cada thread adquire e libera o mesmo lock repetidamente, com sua própria instância,
+     * somando ops aquisições.
+     */
+    private static void benchLock(String address, String runRoot, Report report) throws Exception {
+        String root = runRoot + "/lock";
+        int perThread = Math.max(1, report.ops / report.threads);
+        Samples acquire = new Samples();
+        Samples release = new Samples();
+        Samples handoff = new Samples();
+        AtomicLong lastRelease = new AtomicLong();
+
+        long wall = runThreads(report.threads, t -> {
+            SyncPrimitive.Lock lock = new SyncPrimitive.Lock(address, root);
+            for (int i = 0; i < perThread; i++) {
+                long start = System.nanoTime();
+                lock.lock();
+                long acquired = System.nanoTime();
+                acquire.add(acquired - start);
+                long released = lastRelease.get();
+                if (released > start) {
+                    // Esperou por outra thread: mede a passagem do lock
+                    handoff.add(acquired - released);
+                }
+
+                long releaseStart = System.nanoTime();
+                lock.unlock();
+                long end = System.nanoTime();
+                lastRelease.set(end);
+                release.add(end - releaseStart);
+            }
+        });
+        report.results.add(summarize("lock.acquire", null, acquire, wall));
+        report.results.add(summarize("lock.release", null, release, wall));
+        report.results.add(summarize("lock.handoff", null, handoff, wall));
+    }
+
+    /**
+     * Mede, em cada rodada, o tempo entre a chegada do último participante e a liberação de cada um.
+     */
+    private static void benchBarrier(String address, String runRoot, int groupSize, int rounds, Report report) throws Exception {
+        Samples releaseTime = new Samples();
+        long totalWall = 0;
+        for (int round = 0; round < rounds; round++) {
+            String root = runRoot + "/barrier-" + groupSize + "/r" + round;
+            long[] entered = new long[groupSize];
+            long[] released = new long[groupSize];
+            totalWall += runThreads(groupSize, t -> {
+                SyncPrimitive.QuorumBarrier barrier = new SyncPrimitive.QuorumBarrier(address, root, groupSize, groupSize, 0);
+                entered[t] = System.nanoTime();
+                barrier.enter("p" + t, true);
+                released[t] = System.nanoTime();
+            });
+            long lastEntered = Arrays.stream(entered).max().getAsLong();
+            for (long r : released) releaseTime.add(Math.max(0, r - lastEntered));
+        }
+        report.results.add(summarize("barrier.release", groupSize, releaseTime, totalWall));
+    }
+
+    /**
+     * Mede o tempo até o primeiro líder e, com cada líder saindo logo após ser eleito,
+     * o tempo de cada sucessão.
+     */
+    private static void benchElection(String address, String runRoot, int groupSize, int rounds, Report report) throws Exception {
+        Samples firstLeader = new Samples();
+        Samples succession = new Samples();
+        long totalWall = 0;
+        for (int round = 0; round < rounds; round++) {
+            String root = runRoot + "/election-" + groupSize + "/r" + round;
+            String leaderNode = root + "-leader";
+            AtomicLong lastStepDown = new AtomicLong();
+            long start = System.nanoTime();
+            totalWall += runThreads(groupSize, t -> {
+                SyncPrimitive.Leader leader = new SyncPrimitive.Leader(address, root, leaderNode, t);
+                leader.elect();
+                long elected = System.nanoTime();
+                long previous = lastStepDown.get();
+                if (previous == 0) {
+                    firstLeader.add(elected - start);
+                } else {
+                    succession.add(elected - previous);
+                }
+                lastStepDown.set(System.nanoTime());
+                leader.stepDown();
+            });
+        }
+        report.results.add(summarize("election.first", groupSize, firstLeader, totalWall));
+        report.results.add(summarize("election.handoff", groupSize, succession, totalWall));
+    }
+
+    /**
+     * Executa a tarefa em várias threads, liberadas ao mesmo tempo.
+     * @return Tempo total (ns) do início até a última thread terminar
+     */
+    private static long runThreads(int threads, Task task) throws Exception {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            Thread worker = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                    task.run(index);
+                } catch (Exception e) {
+                    errors.add(e);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread worker : workers) worker.join();
+        long wall = System.nanoTime() - start;
+        if (!errors.isEmpty()) throw errors.get(0);
+        return wall;
+    }
+
+    private static Result summarize(String name, Integer groupSize, Samples samples, long wallNanos) {
+        List<Long> sorted;
+        synchronized (samples.nanos) {
+            sorted = new ArrayList<>(samples.nanos);
+        }
+        Collections.sort(sorted);
+        Result result = new Result();
+        result.name = name;
+        result.groupSize = groupSize;
+        result.count = sorted.size();
+        result.opsPerSec = wallNanos > 0 ? sorted.size() / (wallNanos / 1e9) : 0;
+        result.p50Ms = percentile(sorted, 0.50);
+        result.p99Ms = percentile(sorted, 0.99);
+        result.p999Ms = percentile(sorted, 0.999);
+        result.maxMs = sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1) / 1e6;
+        return result;
+    }
+
+    private static double percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) return 0;
+        int index = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1))) / 1e6;
+    }
+}
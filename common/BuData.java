@@ -9,11 +9,17 @@
  * Métodos principais:
  * - toMessage(): Retorna uma representação textual dos dados da urna.
  * - votesEqual(BuData other): Compara os votos desta urna com outra.
+ * - contentHash(): Hash determinístico do conteúdo do boletim.
+ * - queueElementName(): Nome determinístico do boletim na fila regional.
  */
 package common;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 
 public class BuData {
     public String region; // Região da urna
@@ -58,4 +64,29 @@ public class BuData {
         return other != null && Objects.equals(this.votes, other.votes);
     }
 
+    /**
+     * Calcula um hash SHA-256 do conteúdo do boletim, independente da ordem dos votos.
+     * @return Hash em hexadecimal
+     */
+    public String contentHash() {
+        String canonical = region + "|" + urnId + "|" + (votes != null ? new TreeMap<>(votes) : "");
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Nome do elemento do boletim na fila: o mesmo a cada reenvio do mesmo conteúdo,
+     * de modo que uma nova tentativa não duplique o BU na fila.
+     * @return Nome do znode, ex: "bu-urn-101-3f2a9c1b0d4e"
+     */
+    public String queueElementName() {
+        return "bu-" + String.valueOf(urnId).replace('/', '_') + "-" + contentHash().substring(0, 12);
+    }
+
 }
\ No newline at end of file
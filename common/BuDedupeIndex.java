@@ -0,0 +1,40 @@
+/**
+ * Índice de deduplicação dos BUs consumidos pelo líder.
+ * 
+ * Guarda o hash do conteúdo do BU de cada urna, classificando cada BU recebido em O(1):
+ * - NEW: primeiro BU da urna, deve ser consolidado.
+ * - DUPLICATE: reenvio do mesmo conteúdo (ex: nova tentativa após timeout), ignorado.
+ * - CONFLICT: outro conteúdo para uma urna já consolidada; vale o primeiro, e a
+ *   auditoria da urna acusa a divergência.
+ */
+package common;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class BuDedupeIndex {
+    public enum Result { NEW, DUPLICATE, CONFLICT }
+
+    private final Map<String, String> hashByUrn = new HashMap<>(); // urnId -> hash do conteúdo
+    public int duplicatesSkipped; // BUs repetidos ignorados
+    public int conflicts;         // BUs divergentes ignorados
+
+    /**
+     * Registra um BU no índice e informa se ele é novo, repetido ou divergente.
+     * @param bu BU recebido da fila
+     * @return Classificação do BU
+     */
+    public Result accept(BuData bu) {
+        String hash = bu.contentHash();
+        String known = hashByUrn.putIfAbsent(bu.urnId, hash);
+        if (known == null) {
+            return Result.NEW;
+        }
+        if (known.equals(hash)) {
+            duplicatesSkipped++;
+            return Result.DUPLICATE;
+        }
+        conflicts++;
+        return Result.CONFLICT;
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ * Journal local, somente de acréscimo, dos BUs a serem enviados para a fila regional.
+ * 
+ * Cada BU é gravado (e sincronizado com o disco) antes do envio; quando o envio é
+ * confirmado pelo ZooKeeper, um registro de confirmação (ACK) é acrescentado. Ao reabrir
+ * o journal, os BUs sem confirmação voltam a ficar pendentes para reenvio.
+ * 
+ * O arquivo é mapeado em memória e cresce dobrando de tamanho. Layout:
+ * - Cabeçalho: magic e versão.
+ * - Registros: tipo (ENTRY ou ACK), tamanho, CRC32 e conteúdo. Um ENTRY guarda o JSON do
+ *   BU; um ACK guarda o número de sequência do ENTRY confirmado.
+ * A leitura para no primeiro registro zerado ou com CRC inválido (escrita interrompida).
+ */
+package common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+public class BuJournal implements AutoCloseable {
+    private static final int MAGIC = 0x42554A4C; // "BUJL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 12;
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    private static final int ENTRY = 1;
+    private static final int ACK = 2;
+
+    /**
+     * BU gravado no journal e ainda não confirmado.
+     */
+    public static class Entry {
+        public final long seq;
+        public final byte[] payload;
+
+        Entry(long seq, byte[] payload) {
+            this.seq = seq;
+            this.payload = payload;
+        }
+    }
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private final LinkedHashMap<Long, Entry> pending = new LinkedHashMap<>();
+    private long nextSeq;
+
+    /**
+     * Abre (ou cria) o journal, recuperando os BUs ainda não confirmados.
+     * Se todos os BUs já foram confirmados, o journal é esvaziado.
+     * @param file Arquivo do journal
+     */
+    public BuJournal(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        // A recuperação lê uma cópia do arquivo, que só é mapeado depois: no Windows,
+        // um arquivo mapeado não pode ser truncado
+        long size = channel.size();
+        ByteBuffer existing = read(size);
+        int end = HEADER_BYTES;
+        if (size >= HEADER_BYTES && existing.getInt(0) == MAGIC) {
+            end = recover(existing);
+        }
+        if (pending.isEmpty()) {
+            reset(); // Journal novo, inválido ou sem pendências: recomeça (compacta) o arquivo
+        } else {
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_CAPACITY));
+            // Apaga um possível registro parcial após o último válido
+            for (int i = end; i < Math.min(end + RECORD_HEADER_BYTES, buffer.capacity()); i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.position(end);
+        }
+    }
+
+    /**
+     * Grava um BU no journal e sincroniza com o disco.
+     * @param payload JSON do BU
+     * @return Número de sequência do registro
+     */
+    public synchronized long append(byte[] payload) {
+        long seq = nextSeq++;
+        writeRecord(ENTRY, payload);
+        pending.put(seq, new Entry(seq, payload));
+        return seq;
+    }
+
+    /**
+     * Registra a confirmação do envio de um BU e sincroniza com o disco.
+     * @param seq Número de sequência do BU confirmado
+     */
+    public synchronized void ack(long seq) {
+        if (pending.remove(seq) == null) return;
+        writeRecord(ACK, longBytes(seq));
+        if (pending.isEmpty()) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * BUs gravados e ainda não confirmados, na ordem de gravação.
+     */
+    public synchronized List<Entry> pending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * Verifica se há um BU pendente com o mesmo conteúdo.
+     */
+    public synchronized boolean isPending(byte[] payload) {
+        for (Entry entry : pending.values()) {
+            if (Arrays.equals(entry.payload, payload)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Aguarda até que todos os BUs tenham sido confirmados.
+     * @param timeoutMs Espera máxima
+     * @return true se não há mais BUs pendentes
+     */
+    public synchronized boolean awaitFlushed(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!pending.isEmpty()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) return false;
+            wait(remaining);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Lê o conteúdo atual do arquivo, sem mapeá-lo.
+     */
+    private ByteBuffer read(long size) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate((int) size);
+        while (data.hasRemaining() && channel.read(data, data.position()) >= 0) {
+            // Continua até ler o arquivo inteiro
+        }
+        data.flip();
+        return data;
+    }
+
+    /**
+     * Relê os registros válidos.
+     * @return Posição logo após o último registro válido
+     */
+    private int recover(ByteBuffer data) {
+        data.position(HEADER_BYTES);
+        while (data.remaining() >= RECORD_HEADER_BYTES) {
+            int start = data.position();
+            int type = data.getInt();
+            int length = data.getInt();
+            int crc = data.getInt();
+            if ((type != ENTRY && type != ACK) || length < 0 || length > data.remaining()) {
+                data.position(start);
+                break;
+            }
+            byte[] payload = new byte[length];
+            data.get(payload);
+            if (crc != crc(type, payload)) {
+                data.position(start);
+                break;
+            }
+            if (type == ENTRY) {
+                long seq = nextSeq++;
+                pending.put(seq, new Entry(seq, payload));
+            } else {
+                pending.remove(ByteBuffer.wrap(payload).getLong());
+            }
+        }
+        return data.position();
+    }
+
+    /**
+     * Esvazia o journal, mantendo apenas o cabeçalho. Chamado antes de o arquivo
+     * ser mapeado, já que um arquivo mapeado não pode ser truncado no Windows.
+     */
+    private void reset() throws IOException {
+        channel.truncate(0);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_CAPACITY);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.position(HEADER_BYTES);
+        buffer.force();
+        pending.clear();
+        nextSeq = 0;
+    }
+
+    private void writeRecord(int type, byte[] payload) {
+        ensureCapacity(RECORD_HEADER_BYTES + payload.length);
+        buffer.putInt(type);
+        buffer.putInt(payload.length);
+        buffer.putInt(crc(type, payload));
+        buffer.put(payload);
+        buffer.force();
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() >= bytes + RECORD_HEADER_BYTES) return;
+        int position = buffer.position();
+        long capacity = buffer.capacity();
+        while (capacity - position < bytes + RECORD_HEADER_BYTES) capacity *= 2;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not grow BU journal", e);
+        }
+        buffer.position(position);
+    }
+
+    private static int crc(int type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] longBytes(long value) {
+        return ByteBuffer.allocate(8).putLong(value).array();
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Lê o arquivo colunar gerado por ColumnarResultsWriter.
+ * 
+ * O arquivo é mapeado em memória e as colunas são acessadas como views (IntBuffer)
+ * sobre o mapeamento, sem cópia; apenas os dicionários, pequenos, são decodificados.
+ * 
+ * Métodos principais:
+ * - votesByCandidate(): Soma os votos de cada candidato em todas as regiões.
+ * - votesByRegion(): Soma os votos de cada região.
+ * - votesByCandidate(String region): Soma os votos de cada candidato em uma região.
+ */
+package common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class ColumnarResultsReader {
+    private final List<String> candidates;
+    private final List<String> urns;
+    private final List<String> regions;
+    private final IntBuffer urnRegion;    // Região de cada urna
+    private final IntBuffer urnRowStart;  // Primeira linha de cada urna
+    private final IntBuffer candidateCol; // Candidato de cada linha
+    private final IntBuffer countCol;     // Votos de cada linha
+    private final int rows;
+
+    /**
+     * Mapeia o arquivo em memória (somente leitura).
+     * @param file Arquivo gerado por ColumnarResultsWriter
+     */
+    public ColumnarResultsReader(Path file) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // O mapeamento continua válido após fechar o canal
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buf.getInt() != ColumnarResultsWriter.MAGIC) {
+            throw new IOException("Not a columnar results file: " + file);
+        }
+        int version = buf.getInt();
+        if (version != ColumnarResultsWriter.VERSION) {
+            throw new IOException("Unsupported columnar results version: " + version);
+        }
+        int candidateCount = buf.getInt();
+        int urnCount = buf.getInt();
+        int regionCount = buf.getInt();
+        this.rows = buf.getInt();
+        long[] offsets = new long[ColumnarResultsWriter.SECTIONS];
+        for (int i = 0; i < offsets.length; i++) offsets[i] = buf.getLong();
+
+        this.candidates = readDictionary(buf, offsets[0], candidateCount);
+        this.urns = readDictionary(buf, offsets[1], urnCount);
+        this.regions = readDictionary(buf, offsets[2], regionCount);
+        this.urnRegion = column(buf, offsets[3], urnCount);
+        this.urnRowStart = column(buf, offsets[4], urnCount + 1);
+        this.candidateCol = column(buf, offsets[6], rows);
+        this.countCol = column(buf, offsets[7], rows);
+    }
+
+    public List<String> candidates() { return candidates; }
+    public List<String> urns() { return urns; }
+    public List<String> regions() { return regions; }
+
+    /**
+     * Soma os votos de cada candidato em todas as regiões.
+     */
+    public Map<String, Long> votesByCandidate() {
+        long[] sums = new long[candidates.size()];
+        for (int row = 0; row < rows; row++) {
+            sums[candidateCol.get(row)] += countCol.get(row);
+        }
+        return toMap(candidates, sums);
+    }
+
+    /**
+     * Soma os votos de cada candidato em uma região.
+     * @param region Nome da região
+     */
+    public Map<String, Long> votesByCandidate(String region) {
+        int regionIdx = regions.indexOf(region);
+        long[] sums = new long[candidates.size()];
+        for (int urn = 0; urn < urns.size(); urn++) {
+            if (urnRegion.get(urn) != regionIdx) continue;
+            for (int row = urnRowStart.get(urn); row < urnRowStart.get(urn + 1); row++) {
+                sums[candidateCol.get(row)] += countCol.get(row);
+            }
+        }
+        return toMap(candidates, sums);
+    }
+
+    /**
+     * Soma os votos de cada região.
+     */
+    public Map<String, Long> votesByRegion() {
+        long[] sums = new long[regions.size()];
+        for (int urn = 0; urn < urns.size(); urn++) {
+            int region = urnRegion.get(urn);
+            for (int row = urnRowStart.get(urn); row < urnRowStart.get(urn + 1); row++) {
+                sums[region] += countCol.get(row);
+            }
+        }
+        return toMap(regions, sums);
+    }
+
+    private static List<String> readDictionary(ByteBuffer buf, long offset, int count) {
+        List<String> values = new ArrayList<>(count);
+        buf.position((int) offset);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[buf.getInt()];
+            buf.get(bytes);
+            values.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    private static IntBuffer column(ByteBuffer buf, long offset, int length) {
+        return buf.duplicate().position((int) offset).limit((int) offset + 4 * length).slice().asIntBuffer();
+    }
+
+    private static Map<String, Long> toMap(List<String> keys, long[] sums) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) result.put(keys.get(i), sums[i]);
+        return result;
+    }
+}
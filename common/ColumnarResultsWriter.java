@@ -0,0 +1,133 @@
+/**
+ * Exporta a apuração final para um arquivo binário colunar, lido por ColumnarResultsReader.
+ * 
+ * Cada linha do arquivo é um par (urna, candidato) com a contagem de votos; a região vem
+ * da urna. Layout (inteiros big-endian, colunas alinhadas em 4 bytes):
+ * - Cabeçalho: magic, versão, nº de candidatos, urnas, regiões e linhas.
+ * - Índice: offsets de cada seção abaixo.
+ * - Dicionários de candidatos, urnas e regiões (tamanho + UTF-8, em ordem alfabética).
+ * - urnRegion[urnas]: região de cada urna.
+ * - urnRowStart[urnas + 1]: primeira linha de cada urna (as linhas são agrupadas por urna).
+ * - Colunas urn[linhas], candidate[linhas] e count[linhas].
+ */
+package common;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class ColumnarResultsWriter {
+    static final int MAGIC = 0x53444352; // "SDCR"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 6 * 4;
+    static final int SECTIONS = 8;       // Entradas do índice de offsets
+
+    /**
+     * Escreve a apuração no arquivo, substituindo-o se já existir.
+     * @param tally Apuração final (normalmente a de /tallies/total)
+     * @param file Arquivo de destino
+     */
+    public static void write(RegionalTally tally, Path file) throws IOException {
+        Collection<BuData> bus = tally.urnBus != null ? tally.urnBus.values() : Collections.emptyList();
+
+        // Dicionários ordenados
+        TreeSet<String> candidateSet = new TreeSet<>();
+        TreeSet<String> regionSet = new TreeSet<>();
+        TreeMap<String, BuData> busByUrn = new TreeMap<>();
+        for (BuData bu : bus) {
+            busByUrn.put(bu.urnId, bu);
+            regionSet.add(String.valueOf(bu.region));
+            if (bu.votes != null) candidateSet.addAll(bu.votes.keySet());
+        }
+        List<String> candidates = new ArrayList<>(candidateSet);
+        List<String> urns = new ArrayList<>(busByUrn.keySet());
+        List<String> regions = new ArrayList<>(regionSet);
+        Map<String, Integer> candidateIdx = indexOf(candidates);
+        Map<String, Integer> regionIdx = indexOf(regions);
+
+        int rows = 0;
+        for (BuData bu : busByUrn.values()) {
+            if (bu.votes != null) rows += bu.votes.size();
+        }
+
+        byte[][] candidateBytes = encode(candidates);
+        byte[][] urnBytes = encode(urns);
+        byte[][] regionBytes = encode(regions);
+
+        long[] offsets = new long[SECTIONS];
+        long pos = HEADER_BYTES + SECTIONS * 8L;
+        offsets[0] = pos; pos = align(pos + dictionaryBytes(candidateBytes));
+        offsets[1] = pos; pos = align(pos + dictionaryBytes(urnBytes));
+        offsets[2] = pos; pos = align(pos + dictionaryBytes(regionBytes));
+        offsets[3] = pos; pos += 4L * urns.size();
+        offsets[4] = pos; pos += 4L * (urns.size() + 1);
+        offsets[5] = pos; pos += 4L * rows;
+        offsets[6] = pos; pos += 4L * rows;
+        offsets[7] = pos; pos += 4L * rows;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, pos);
+            buf.putInt(MAGIC).putInt(VERSION)
+               .putInt(candidates.size()).putInt(urns.size()).putInt(regions.size()).putInt(rows);
+            for (long offset : offsets) buf.putLong(offset);
+
+            putDictionary(buf, offsets[0], candidateBytes);
+            putDictionary(buf, offsets[1], urnBytes);
+            putDictionary(buf, offsets[2], regionBytes);
+
+            int urn = 0;
+            int row = 0;
+            for (BuData bu : busByUrn.values()) {
+                buf.putInt((int) (offsets[3] + 4L * urn), regionIdx.get(String.valueOf(bu.region)));
+                buf.putInt((int) (offsets[4] + 4L * urn), row);
+                if (bu.votes != null) {
+                    // Candidatos em ordem para que a leitura seja determinística
+                    for (Map.Entry<String, Integer> vote : new TreeMap<>(bu.votes).entrySet()) {
+                        buf.putInt((int) (offsets[5] + 4L * row), urn);
+                        buf.putInt((int) (offsets[6] + 4L * row), candidateIdx.get(vote.getKey()));
+                        buf.putInt((int) (offsets[7] + 4L * row), vote.getValue() != null ? vote.getValue() : 0);
+                        row++;
+                    }
+                }
+                urn++;
+            }
+            buf.putInt((int) (offsets[4] + 4L * urn), row);
+            buf.force();
+        }
+    }
+
+    private static Map<String, Integer> indexOf(List<String> values) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) index.put(values.get(i), i);
+        return index;
+    }
+
+    private static byte[][] encode(List<String> values) {
+        byte[][] encoded = new byte[values.size()][];
+        for (int i = 0; i < values.size(); i++) encoded[i] = values.get(i).getBytes(StandardCharsets.UTF_8);
+        return encoded;
+    }
+
+    private static long dictionaryBytes(byte[][] entries) {
+        long size = 0;
+        for (byte[] entry : entries) size += 4 + entry.length;
+        return size;
+    }
+
+    private static void putDictionary(MappedByteBuffer buf, long offset, byte[][] entries) {
+        buf.position((int) offset);
+        for (byte[] entry : entries) {
+            buf.putInt(entry.length);
+            buf.put(entry);
+        }
+    }
+
+    private static long align(long pos) {
+        return (pos + 3) & ~3L;
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * Ciclo de vida das rodadas de uma eleição no ZooKeeper.
+ * 
+ * Cada rodada (UrnConfig.roundId) guarda todos os seus znodes sob <eleição>/rounds/<roundId>.
+ * O líder marca a rodada como terminada ao atualizar a apuração total (nó "finished",
+ * com o horário). Como cada região tem seu líder, a marca não garante que as outras
+ * regiões terminaram: uma rodada só é apagada se também não houver urnas conectadas
+ * (nós efêmeros) nela.
+ * 
+ * Métodos principais:
+ * - reset(String roundId, boolean force): Apaga a subárvore de uma rodada terminada com
+ *   deletes em lote (multi()); force apaga mesmo uma rodada em andamento.
+ * - reapExpired(long ttlMs): Apaga as rodadas inativas há mais de ttlMs (sem urnas conectadas).
+ * - startReaper(long ttlMs, long intervalMs): Executa reapExpired periodicamente em segundo plano.
+ */
+package common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.data.Stat;
+
+public class ElectionRounds extends SyncPrimitive {
+    public static final String FINISHED_NODE = "finished";
+    static final int DELETE_BATCH = 200; // Deletes por multi(), bem abaixo do limite de 1 MB por requisição
+
+    /**
+     * @param address Endereço do ZooKeeper
+     * @param roundsRoot Caminho das rodadas da eleição (UrnConfig.roundsRoot())
+     */
+    public ElectionRounds(String address, String roundsRoot) {
+        super(address);
+        this.root = roundsRoot;
+    }
+
+    /**
+     * Apaga todos os znodes de uma rodada terminada, inclusive a apuração total e os alarmes.
+     * @param roundId Rodada a ser apagada
+     * @param force Apaga mesmo sem a marca de término ou com urnas ainda conectadas
+     * @return Número de znodes apagados
+     * @throws IllegalStateException se a rodada está em andamento e force é false
+     */
+    public int reset(String roundId, boolean force) throws KeeperException, InterruptedException {
+        String roundPath = root + "/" + roundId;
+        if (!force && zk.exists(roundPath, false) != null) {
+            if (zk.exists(roundPath + "/" + FINISHED_NODE, false) == null) {
+                throw new IllegalStateException("Round " + roundId + " has not finished");
+            }
+            if (lastActivity(roundPath) < 0) {
+                throw new IllegalStateException("Round " + roundId + " still has connected urns");
+            }
+        }
+        return deleteTree(roundPath);
+    }
+
+    /**
+     * Apaga as rodadas cuja última atividade (o znode criado ou alterado mais recentemente
+     * nela, como a marca de término) é mais antiga que ttlMs. Rodadas com nós efêmeros
+     * (urnas ainda conectadas) nunca são apagadas, mesmo que alguma região tenha terminado.
+     * @return Rodadas apagadas
+     */
+    public List<String> reapExpired(long ttlMs) throws KeeperException, InterruptedException {
+        List<String> reaped = new ArrayList<>();
+        List<String> rounds;
+        try {
+            rounds = zk.getChildren(root, false);
+        } catch (KeeperException.NoNodeException e) {
+            return reaped;
+        }
+        long now = System.currentTimeMillis();
+        for (String roundId : rounds) {
+            String roundPath = root + "/" + roundId;
+            long lastActivity = lastActivity(roundPath);
+            if (lastActivity < 0) {
+                continue; // Eleição em andamento
+            }
+            if (now - lastActivity > ttlMs) {
+                int deleted = deleteTree(roundPath);
+                System.out.println("Reaped round " + roundId + " (" + deleted + " znodes)");
+                reaped.add(roundId);
+            }
+        }
+        return reaped;
+    }
+
+    /**
+     * Percorre a subárvore em busca da atividade mais recente.
+     * @return Maior ctime/mtime da subárvore, ou -1 se houver algum nó efêmero
+     */
+    private long lastActivity(String path) throws KeeperException, InterruptedException {
+        Stat stat = new Stat();
+        List<String> children;
+        try {
+            children = zk.getChildren(path, false, stat);
+        } catch (KeeperException.NoNodeException e) {
+            return 0;
+        }
+        if (stat.getEphemeralOwner() != 0) {
+            return -1;
+        }
+        long latest = Math.max(stat.getCtime(), stat.getMtime());
+        for (String child : children) {
+            long activity = lastActivity(path + "/" + child);
+            if (activity < 0) {
+                return -1;
+            }
+            latest = Math.max(latest, activity);
+        }
+        return latest;
+    }
+
+    /**
+     * Executa reapExpired periodicamente em uma thread daemon.
+     * @return Executor, para que o chamador possa encerrá-lo
+     */
+    public ScheduledExecutorService startReaper(long ttlMs, long intervalMs) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "round-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                reapExpired(ttlMs);
+            } catch (KeeperException | InterruptedException e) {
+                System.err.println("Error reaping rounds: " + e.getMessage());
+            }
+        }, 0, intervalMs, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    /**
+     * Apaga a subárvore (filhos antes dos pais) em lotes de DELETE_BATCH por multi().
+     * Se um lote falhar porque algum nó já sumiu, os nós do lote são apagados um a um.
+     */
+    private int deleteTree(String path) throws KeeperException, InterruptedException {
+        List<String> nodes = new ArrayList<>();
+        collect(path, nodes);
+        Collections.reverse(nodes); // Pós-ordem: filhos antes dos pais
+
+        int deleted = 0;
+        for (int start = 0; start < nodes.size(); start += DELETE_BATCH) {
+            List<String> batch = nodes.subList(start, Math.min(start + DELETE_BATCH, nodes.size()));
+            List<Op> ops = new ArrayList<>();
+            for (String node : batch) ops.add(Op.delete(node, -1));
+            try {
+                zk.multi(ops);
+                deleted += batch.size();
+            } catch (KeeperException.NoNodeException e) {
+                for (String node : batch) {
+                    try {
+                        zk.delete(node, -1);
+                        deleted++;
+                    } catch (KeeperException.NoNodeException ignored) {
+                        // Já apagado (ex: nó efêmero de uma sessão encerrada)
+                    }
+                }
+            }
+        }
+        forgetPaths(path);
+        return deleted;
+    }
+
+    /**
+     * Lista a subárvore em pré-ordem (pais antes dos filhos).
+     */
+    private void collect(String path, List<String> nodes) throws KeeperException, InterruptedException {
+        List<String> children;
+        try {
+            children = zk.getChildren(path, false);
+        } catch (KeeperException.NoNodeException e) {
+            return;
+        }
+        nodes.add(path);
+        for (String child : children) {
+            collect(path + "/" + child, nodes);
+        }
+    }
+}
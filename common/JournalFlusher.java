@@ -0,0 +1,79 @@
+/**
+ * Envia em segundo plano os BUs pendentes do journal para a fila regional.
+ * 
+ * Enquanto a sessão com o ZooKeeper estiver desconectada, os BUs continuam no journal;
+ * quando ela se reconecta, os pendentes são enviados em lotes (um multi() por lote) e
+ * confirmados no journal. Como os elementos têm nomes determinísticos, reenviar um BU
+ * que já chegou à fila não o duplica.
+ */
+package common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class JournalFlusher implements Runnable {
+    private static final long IDLE_MS = 200;
+
+    private final BuJournal journal;
+    private final SyncPrimitive.Queue queue;
+    private final int batchSize;
+
+    /**
+     * @param journal Journal com os BUs pendentes
+     * @param queue Fila regional de destino
+     * @param batchSize Máximo de BUs por transação
+     */
+    public JournalFlusher(BuJournal journal, SyncPrimitive.Queue queue, int batchSize) {
+        this.journal = journal;
+        this.queue = queue;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Inicia o envio em uma thread daemon.
+     */
+    public void start() {
+        Thread thread = new Thread(this, "bu-journal-flusher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (!SyncPrimitive.isConnected() || !flushBatch()) {
+                    Thread.sleep(IDLE_MS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.err.println("Error flushing BU journal: " + e.getMessage());
+                try { Thread.sleep(IDLE_MS); } catch (InterruptedException ignored) { return; }
+            }
+        }
+    }
+
+    /**
+     * Envia um lote de BUs pendentes e confirma-os no journal.
+     * @return true se algum BU foi enviado
+     */
+    private boolean flushBatch() throws Exception {
+        List<BuJournal.Entry> pending = journal.pending();
+        if (pending.isEmpty()) return false;
+
+        List<BuJournal.Entry> batch = pending.subList(0, Math.min(batchSize, pending.size()));
+        List<String> names = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        for (BuJournal.Entry entry : batch) {
+            names.add(new BuData(new String(entry.payload)).queueElementName());
+            values.add(entry.payload);
+        }
+        queue.produceAll(names, values);
+        for (BuJournal.Entry entry : batch) {
+            journal.ack(entry.seq);
+        }
+        System.out.println("Flushed " + batch.size() + " BU(s) from journal");
+        return true;
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Espelho da apuração regional mantido pela urna que é a próxima na fila da eleição.
+ * 
+ * Enquanto o Superpeer consome a fila, o standby acompanha por watches, sem consumir nada:
+ * - Os BUs presentes na fila regional.
+ * - A apuração parcial que o líder publica em um znode efêmero a cada BU consolidado.
+ * 
+ * Se o líder cair, o znode de progresso desaparece com a sessão dele, mas a última versão
+ * lida continua no espelho. Ao assumir, o novo líder parte dessa apuração em vez de
+ * recomeçar do zero com a fila já parcialmente drenada.
+ */
+package common;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+
+public class RegionalStandby extends SyncPrimitive {
+    private final String region;        // Região espelhada
+    private final String progressPath;  // Znode da apuração parcial do líder
+    private final Map<String, BuData> queuedBus = new HashMap<>(); // Elemento da fila -> BU
+    private RegionalTally progress;     // Última apuração parcial lida
+    private boolean active;
+
+    /**
+     * Cria o standby da região, sem iniciar o espelhamento.
+     * @param address Endereço do ZooKeeper
+     * @param region Nome da região
+     * @param queuePath Caminho da fila regional
+     * @param progressPath Caminho do znode de progresso publicado pelo líder
+     */
+    public RegionalStandby(String address, String region, String queuePath, String progressPath) {
+        super(address);
+        this.root = queuePath;
+        this.region = region;
+        this.progressPath = progressPath;
+    }
+
+    /**
+     * Inicia o espelhamento da fila e do progresso do líder.
+     */
+    public synchronized void start() {
+        if (active) return;
+        System.out.println("Hot standby mirroring " + root + " and " + progressPath);
+        active = true;
+        refresh();
+    }
+
+    /**
+     * Encerra o espelhamento e devolve a apuração pronta para o novo líder.
+     * Funciona mesmo que o espelhamento nunca tenha sido iniciado.
+     * @return Apuração com os BUs do progresso do líder anterior e os da fila
+     */
+    public synchronized RegionalTally takeOver() {
+        active = true;
+        refresh();
+        active = false;
+
+        RegionalTally tally = new RegionalTally(region);
+        if (progress != null && progress.urnBus != null) {
+            for (BuData bu : progress.urnBus.values()) {
+                tally.mergeBu(bu);
+            }
+        }
+        for (BuData bu : queuedBus.values()) {
+            if (!tally.urnBus.containsKey(bu.urnId)) {
+                tally.mergeBu(bu);
+            }
+        }
+        return tally;
+    }
+
+    /**
+     * Relê a fila e o progresso do líder, rearmando os watches.
+     */
+    private synchronized void refresh() {
+        if (!active) return;
+        try {
+            List<String> children = zk.getChildren(root, this);
+            for (String child : children) {
+                if (queuedBus.containsKey(child)) continue;
+                try {
+                    byte[] data = zk.getData(root + "/" + child, false, null);
+                    queuedBus.put(child, new BuData(new String(data)));
+                } catch (KeeperException.NoNodeException e) {
+                    // Já consumido pelo líder; aparecerá no progresso publicado
+                }
+            }
+
+            try {
+                byte[] data = zk.getData(progressPath, this, null);
+                progress = RegionalTally.fromJson(new String(data));
+            } catch (KeeperException.NoNodeException e) {
+                // Sem progresso (ainda, ou o líder caiu): mantém a última versão lida
+                if (zk.exists(progressPath, this) != null) {
+                    byte[] data = zk.getData(progressPath, false, null);
+                    progress = RegionalTally.fromJson(new String(data));
+                }
+            }
+        } catch (KeeperException | InterruptedException e) {
+            System.out.println("Error refreshing hot standby: " + e.toString());
+        }
+    }
+
+    @Override
+    public void process(WatchedEvent event) {
+        if (event.getType() != Event.EventType.None) {
+            refresh();
+        }
+    }
+}
@@ -42,13 +42,19 @@ public class RegionalTally {
 
     /**
      * Adiciona os votos de uma BuData (urna) à apuração.
+     * Se a urna já estiver na apuração, seus votos anteriores são substituídos,
+     * mantendo votes igual à soma de urnBus.
      * @param bu Dados da urna a serem agregados
      */
     public void mergeBu(BuData bu) {
         if (bu == null || bu.votes == null) return;
+        BuData previous = urnBus.put(bu.urnId, bu);
+        if (previous != null && previous.votes != null) {
+            previous.votes.forEach((candidate, voteCount) ->
+                votes.merge(candidate, -voteCount, Integer::sum));
+        }
         bu.votes.forEach((candidate, voteCount) ->
             votes.merge(candidate, voteCount, Integer::sum));
-        urnBus.put(bu.urnId, bu);
     }
 
     /**
@@ -0,0 +1,51 @@
+/**
+ * Política de novas tentativas para operações no ZooKeeper.
+ * 
+ * Repete a operação apenas em falhas transitórias de conexão (ConnectionLoss e
+ * OperationTimeout), dobrando o tempo de espera a cada tentativa. Qualquer outra
+ * KeeperException é propagada imediatamente.
+ */
+package common;
+
+import org.apache.zookeeper.KeeperException;
+
+public class RetryPolicy {
+    private final int maxAttempts;  // Número máximo de tentativas (incluindo a primeira)
+    private final long backoffMs;   // Espera antes da segunda tentativa
+
+    /**
+     * Operação no ZooKeeper que pode ser repetida.
+     */
+    public interface ZkCall<T> {
+        T call() throws KeeperException, InterruptedException;
+    }
+
+    /**
+     * Cria uma política de novas tentativas.
+     * @param maxAttempts Número máximo de tentativas (mínimo 1)
+     * @param backoffMs Espera inicial entre tentativas, em milissegundos
+     */
+    public RetryPolicy(int maxAttempts, long backoffMs) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = Math.max(0, backoffMs);
+    }
+
+    /**
+     * Executa a operação, repetindo-a em falhas transitórias de conexão.
+     * @param op Operação a ser executada
+     * @return Resultado da operação
+     */
+    public <T> T run(ZkCall<T> op) throws KeeperException, InterruptedException {
+        long wait = backoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return op.call();
+            } catch (KeeperException.ConnectionLossException | KeeperException.OperationTimeoutException e) {
+                if (attempt >= maxAttempts) throw e;
+                System.err.println("Transient ZooKeeper failure (" + e.code() + "), retrying in " + wait + " ms...");
+                Thread.sleep(wait);
+                wait *= 2;
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@
  * 
  * Implementa primitivas de sincronização distribuída usando Apache ZooKeeper:
  * - Barrier: Barreira distribuída para sincronização de múltiplos processos.
+ * - QuorumBarrier: Barreira liberada por quórum ou prazo, informando quem faltou.
  * - Queue: Fila produtor-consumidor distribuída.
  * - Lock: Exclusão mútua distribuída (lock).
  * - Leader: Eleição de líder entre múltiplos nós.
@@ -15,13 +16,19 @@ package common;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.ZooKeeper;
@@ -30,24 +37,177 @@ import org.apache.zookeeper.data.Stat;
 
 public class SyncPrimitive implements Watcher {
 
-    static ZooKeeper zk = null;
+    static volatile ZooKeeper zk = null;
     static final Integer mutex = -1; // Use a final object for locking
+    static int sessionTimeout = 3000;
+    static RetryPolicy retryPolicy = new RetryPolicy(3, 500);
+    static final Set<String> knownPaths = ConcurrentHashMap.newKeySet(); // Persistent paths known to exist
+    static volatile long sessionGeneration = 0; // Incremented when an expired session is replaced
 
     String root;
 
     SyncPrimitive(String address) {
+        connect(address, this);
+    }
+
+    /**
+     * Opens the process-wide session, if not open yet, and waits (up to the
+     * session timeout) until it is connected, so the first requests do not race
+     * the connection handshake.
+     */
+    private static synchronized void connect(String address, Watcher watcher) {
         if(zk == null){
             try {
+                ensureChroot(address);
                 System.out.println("Starting ZK:");
-                zk = new ZooKeeper(address, 3000, this);
+                zk = new ZooKeeper(address, sessionTimeout, sessionWatcher(address, watcher));
                 System.out.println("Finished starting ZK: " + zk);
-            } catch (IOException e) {
+                awaitConnected();
+            } catch (IOException | KeeperException | InterruptedException e) {
                 System.out.println(e.toString());
                 zk = null;
             }
         }
     }
 
+    /**
+     * Wraps the default watcher so an expired session is replaced by a new one.
+     * Without this the shared handle stays dead and isConnected() never recovers.
+     */
+    private static Watcher sessionWatcher(String address, Watcher watcher) {
+        return event -> {
+            if (event.getType() == Event.EventType.None && event.getState() == Event.KeeperState.Expired) {
+                reconnect(address, watcher);
+                synchronized (mutex) {
+                    // Waiters bound to the old session must wake up and fail
+                    mutex.notifyAll();
+                }
+            }
+            watcher.process(event);
+        };
+    }
+
+    /**
+     * Opens a new session after the previous one expired. Ephemeral nodes of the
+     * old session are gone, and cached paths may have been deleted meanwhile.
+     */
+    private static synchronized void reconnect(String address, Watcher watcher) {
+        if (zk != null && zk.getState().isAlive()) return; // Already replaced
+        System.out.println("ZK session expired, opening a new session");
+        knownPaths.clear();
+        sessionGeneration++; // Before the swap, so session() never hands out the new handle for an old generation
+        zk = null;
+        connect(address, watcher);
+    }
+
+    private static void awaitConnected() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + sessionTimeout;
+        synchronized (mutex) {
+            while (!zk.getState().isConnected()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    System.out.println("Timed out waiting for ZK connection, continuing anyway");
+                    return;
+                }
+                // Subclasses may ignore connection events, so poll the state as well
+                mutex.wait(Math.min(remaining, 50));
+            }
+        }
+    }
+
+    /**
+     * Connects and creates every given path (and its parents) up front, so the
+     * primitives built afterwards find their roots in the path cache instead of
+     * checking them one segment at a time.
+     * @param address ZooKeeper connection string
+     * @param paths Paths of the election namespace
+     */
+    public static void bootstrap(String address, Collection<String> paths) throws KeeperException, InterruptedException {
+        connect(address, new SyncPrimitive());
+        if (zk == null) return;
+        ensurePathsExist(paths);
+    }
+
+    /**
+     * Creates the chroot suffix of the connection string (e.g. "host:2181/elections/e1"),
+     * if there is one, since a chrooted session cannot create its own root.
+     */
+    private static void ensureChroot(String address) throws IOException, KeeperException, InterruptedException {
+        int slash = address.indexOf('/');
+        if (slash < 0) return;
+        ZooKeeper rootZk = new ZooKeeper(address.substring(0, slash), sessionTimeout, event -> {});
+        try {
+            long deadline = System.currentTimeMillis() + sessionTimeout;
+            while (!rootZk.getState().isConnected() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            String current = "";
+            for (String part : address.substring(slash).split("/")) {
+                if (part.isEmpty()) continue;
+                current += "/" + part;
+                try {
+                    rootZk.create(current, new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                } catch (KeeperException.NodeExistsException e) {
+                    // Already created by another election member
+                }
+            }
+        } finally {
+            rootZk.close();
+        }
+    }
+
+    /**
+     * Applies the session timeout and retry policy from the urn configuration.
+     * Must be called before the first primitive is created, since the session
+     * is shared by every primitive in the process.
+     */
+    public static void configure(UrnConfig config) {
+        sessionTimeout = config.sessionTimeoutMs;
+        retryPolicy = new RetryPolicy(config.retryMaxAttempts, config.retryBackoffMs);
+    }
+
+    /**
+     * Whether the process-wide session is currently connected to the ensemble.
+     */
+    public static boolean isConnected() {
+        return zk != null && zk.getState().isConnected();
+    }
+
+    /**
+     * Generation of the current session. It changes whenever an expired session
+     * is replaced, so work started on an older generation can be fenced off.
+     */
+    public static long sessionGeneration() {
+        return sessionGeneration;
+    }
+
+    /**
+     * Handle of the given session generation. Operations that depend on the
+     * ephemeral nodes of a session (lock, election, the leader's writes) use it,
+     * so they fail with SessionExpired instead of carrying on in a new session.
+     */
+    static ZooKeeper session(long generation) throws KeeperException.SessionExpiredException {
+        // Not synchronized: callers hold the mutex, which reconnect() may be waiting for
+        ZooKeeper handle = zk;
+        if (handle == null || generation != sessionGeneration) {
+            throw new KeeperException.SessionExpiredException();
+        }
+        return handle; // Replaced after the generation changes: at worst the old, expired handle
+    }
+
+    /**
+     * Retry policy shared by the primitives of this process.
+     */
+    public static RetryPolicy retryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Default watcher used by bootstrap().
+     */
+    private SyncPrimitive() {
+    }
+
     @Override
     synchronized public void process(WatchedEvent event) {
         synchronized (mutex) {
@@ -64,6 +224,7 @@ public class SyncPrimitive implements Watcher {
     static public class Barrier extends SyncPrimitive {
         int size;
         String name;
+        String pathName;
 
         public Barrier(String address, String root, int size) {
             super(address);
@@ -86,7 +247,7 @@ public class SyncPrimitive implements Watcher {
         }
 
         public boolean enter() throws KeeperException, InterruptedException{
-            zk.create(root + "/" + name, new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL_SEQUENTIAL);
+            pathName = zk.create(root + "/" + name, new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL_SEQUENTIAL);
             while (true) {
                 synchronized (mutex) {
                     List<String> list = zk.getChildren(root, true);
@@ -102,6 +263,10 @@ public class SyncPrimitive implements Watcher {
         }
 
         boolean leave() throws KeeperException, InterruptedException{
+            if (pathName != null) {
+                zk.delete(pathName, -1);
+                pathName = null;
+            }
             while (true) {
                 synchronized (mutex) {
                     List<String> list = zk.getChildren(root, true);
@@ -115,6 +280,102 @@ public class SyncPrimitive implements Watcher {
         }
     }
 
+    /**
+     * QuorumBarrier: A barrier that releases when a quorum of participants has
+     * joined or when a deadline expires, whichever comes first.
+     * Each participant joins under its own id and may report a failure, so a
+     * participant that failed is not mistaken for one that never arrived.
+     */
+    static public class QuorumBarrier extends SyncPrimitive {
+        int size;
+        int quorum;
+        long deadlineMs;
+        List<String> expected;
+
+        /**
+         * Outcome of entering the barrier.
+         */
+        static public class Result {
+            public boolean complete;                            // All participants arrived
+            public List<String> arrived = new ArrayList<>();    // Ids that joined
+            public List<String> failed = new ArrayList<>();     // Ids that joined reporting a failure
+            public List<String> missing = new ArrayList<>();    // Expected ids that did not join
+            public int missingCount;                            // size - arrived, even without expected ids
+        }
+
+        /**
+         * @param root Barrier node
+         * @param size Number of participants
+         * @param quorum Participants needed to release (clamped to 1..size)
+         * @param deadlineMs Maximum wait in ms (0 waits for the quorum only)
+         */
+        public QuorumBarrier(String address, String root, int size, int quorum, long deadlineMs) {
+            super(address);
+            this.root = root;
+            this.size = size;
+            this.quorum = Math.max(1, Math.min(quorum, size));
+            this.deadlineMs = deadlineMs;
+            if (zk != null) {
+                try {
+                    ensurePathExists(root);
+                } catch (KeeperException | InterruptedException e) {
+                    System.out.println("Keeper exception when instantiating quorum barrier: " + e.toString());
+                }
+            }
+        }
+
+        /**
+         * Sets the ids expected to join, so missing participants can be named.
+         */
+        public void setExpected(List<String> expected) {
+            this.expected = expected;
+        }
+
+        /**
+         * Joins the barrier and blocks until the quorum is reached or the deadline expires.
+         * @param participantId Id of this participant
+         * @param ok false to join reporting a failure
+         */
+        public Result enter(String participantId, boolean ok) throws KeeperException, InterruptedException {
+            zk.create(root + "/" + participantId + "-", (ok ? "OK" : "FAILED").getBytes(),
+                Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL_SEQUENTIAL);
+            long deadline = deadlineMs > 0 ? System.currentTimeMillis() + deadlineMs : Long.MAX_VALUE;
+            while (true) {
+                synchronized (mutex) {
+                    List<String> list = zk.getChildren(root, true);
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (list.size() >= quorum || remaining <= 0) {
+                        return result(list);
+                    }
+                    mutex.wait(Math.min(1000, remaining));
+                }
+            }
+        }
+
+        private Result result(List<String> children) throws KeeperException, InterruptedException {
+            Result result = new Result();
+            for (String child : children) {
+                // Strip the 10-digit sequence suffix appended by ZooKeeper
+                String id = child.substring(0, child.length() - 11);
+                result.arrived.add(id);
+                try {
+                    byte[] data = zk.getData(root + "/" + child, false, null);
+                    if ("FAILED".equals(new String(data))) result.failed.add(id);
+                } catch (KeeperException.NoNodeException e) {
+                    // Participant left after joining
+                }
+            }
+            if (expected != null) {
+                for (String id : expected) {
+                    if (!result.arrived.contains(id)) result.missing.add(id);
+                }
+            }
+            result.missingCount = Math.max(0, size - result.arrived.size());
+            result.complete = result.missingCount == 0;
+            return result;
+        }
+    }
+
     /**
      * Producer-Consumer Queue
      */
@@ -131,21 +392,62 @@ public class SyncPrimitive implements Watcher {
             }
         }
 
-        boolean produce(int i) throws KeeperException, InterruptedException {
-            ByteBuffer b = ByteBuffer.allocate(4);
-            b.putInt(i);
-            byte[] value = b.array();
-            return produce(value);
-        }
-
         public boolean produce(byte[] value) throws KeeperException, InterruptedException {
             zk.create(root + "/element", value, Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT_SEQUENTIAL);
             return true;
         }
 
+        /**
+         * Idempotent produce: creates the element under a caller-chosen name, so
+         * retrying after a timeout cannot enqueue the same element twice.
+         * @return true if the element was created, false if it was already queued
+         */
+        public boolean produce(String elementName, byte[] value) throws KeeperException, InterruptedException {
+            try {
+                zk.create(root + "/" + elementName, value, Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                return true;
+            } catch (KeeperException.NodeExistsException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Idempotent batch produce: creates all elements in a single multi()
+         * transaction. If any of them is already queued the transaction is
+         * rejected as a whole, so the batch falls back to one create per element.
+         * @param elementNames Element names, one per value
+         * @param values Element contents
+         * @return Number of elements created (the others were already queued)
+         */
+        public int produceAll(List<String> elementNames, List<byte[]> values) throws KeeperException, InterruptedException {
+            List<Op> ops = new ArrayList<>();
+            for (int i = 0; i < elementNames.size(); i++) {
+                ops.add(Op.create(root + "/" + elementNames.get(i), values.get(i), Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT));
+            }
+            try {
+                zk.multi(ops);
+                return ops.size();
+            } catch (KeeperException.NodeExistsException e) {
+                int created = 0;
+                for (int i = 0; i < elementNames.size(); i++) {
+                    if (produce(elementNames.get(i), values.get(i))) created++;
+                }
+                return created;
+            }
+        }
+
         public byte[] consumeBytes() throws KeeperException, InterruptedException {
+            return consumeBytes(sessionGeneration());
+        }
+
+        /**
+         * Removes the oldest element, only while the given session is still current.
+         * @return The element's data, or null if the queue is empty
+         */
+        public byte[] consumeBytes(long generation) throws KeeperException, InterruptedException {
             while (true) {
                 synchronized (mutex) {
+                    ZooKeeper zk = session(generation);
                     List<String> list = zk.getChildren(root, true); // Set a watch
                     if (list.isEmpty()) {
                         return null;
@@ -163,13 +465,6 @@ public class SyncPrimitive implements Watcher {
                 }
             }
         }
-
-        int consume() throws KeeperException, InterruptedException{
-            byte[] data = consumeBytes();
-            if (data == null) return -1;
-            ByteBuffer buffer = ByteBuffer.wrap(data);
-            return buffer.getInt();
-        }
     }
 
     /**
@@ -177,6 +472,7 @@ public class SyncPrimitive implements Watcher {
      */
     static public class Lock extends SyncPrimitive {
         private String pathName;
+        private long generation = -1; // Session that holds (or waits for) the lock
 
         public Lock(String address, String name) {
             super(address);
@@ -195,34 +491,52 @@ public class SyncPrimitive implements Watcher {
          * @return true when the lock is acquired.
          */
         public boolean lock() throws KeeperException, InterruptedException {
-            pathName = zk.create(root + "/lock-", new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL_SEQUENTIAL);
+            generation = sessionGeneration();
+            pathName = session(generation).create(root + "/lock-", new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL_SEQUENTIAL);
             System.out.println("My lock path is: " + pathName);
             return testMin();
         }
 
         /**
-         * Releases the lock.
+         * Releases the lock. Throws SessionExpired if the lock was already lost
+         * with the session that acquired it.
          */
         public void unlock() throws KeeperException, InterruptedException {
             if (this.pathName != null) {
-                zk.delete(this.pathName, -1);
+                try {
+                    session(generation).delete(this.pathName, -1);
+                } catch (KeeperException.SessionExpiredException e) {
+                    this.pathName = null; // The ephemeral node is gone with the session
+                    throw e;
+                }
                 this.pathName = null;
             }
         }
+
+        /**
+         * Session generation the lock was requested on.
+         */
+        public long session() {
+            return generation;
+        }
         
         private boolean testMin() throws KeeperException, InterruptedException {
             while (true) {
                 synchronized (mutex) {
+                    ZooKeeper zk = session(generation);
                     List<String> children = zk.getChildren(root, false);
                     Collections.sort(children);
                     String myNodeName = pathName.substring(root.length() + 1);
 
-                    if (myNodeName.equals(children.get(0))) {
+                    int myIndex = children.indexOf(myNodeName);
+                    if (myIndex < 0) {
+                        throw new KeeperException.NoNodeException(pathName);
+                    }
+                    if (myIndex == 0) {
                         System.out.println("Lock acquired for " + myNodeName + "!");
                         return true;
                     }
 
-                    int myIndex = children.indexOf(myNodeName);
                     String nodeToWatch = children.get(myIndex - 1);
 
                     System.out.println("Watching " + root + "/" + nodeToWatch);
@@ -254,6 +568,8 @@ public class SyncPrimitive implements Watcher {
         String id;
         String pathName;
         String leaderNodePath;
+        Runnable successorListener;
+        long generation = -1; // Session this node runs for leadership on
 
         public Leader(String address, String electionPath, String leaderNode, int id) {
             super(address);
@@ -269,11 +585,20 @@ public class SyncPrimitive implements Watcher {
             }
         }
         
+        /**
+         * Registers a callback invoked once, when this node becomes the next in
+         * line, i.e. the one watching the current leader.
+         */
+        public void onSuccessor(Runnable listener) {
+            this.successorListener = listener;
+        }
+
         /**
          * Enters the election and blocks until this node becomes the leader.
          */
         public void elect() throws KeeperException, InterruptedException {
-            pathName = zk.create(root + "/n-", id.getBytes(), Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL_SEQUENTIAL);
+            generation = sessionGeneration();
+            pathName = session(generation).create(root + "/n-", id.getBytes(), Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL_SEQUENTIAL);
             System.out.println("My path name is: " + pathName + " and my id is: " + id + "!");
             check();
         }
@@ -281,17 +606,25 @@ public class SyncPrimitive implements Watcher {
         private void check() throws KeeperException, InterruptedException {
             while (true) {
                 synchronized (mutex) {
+                    ZooKeeper zk = session(generation);
                     List<String> children = zk.getChildren(root, false);
                     Collections.sort(children);
                     String myNodeName = pathName.substring(root.length() + 1);
 
-                    if (myNodeName.equals(children.get(0))) {
+                    int myIndex = children.indexOf(myNodeName);
+                    if (myIndex < 0) {
+                        throw new KeeperException.NoNodeException(pathName);
+                    }
+                    if (myIndex == 0) {
                         becomeLeader();
                         return; // We are the leader, exit the check loop.
                     }
 
-                    int myIndex = children.indexOf(myNodeName);
                     String nodeToWatch = children.get(myIndex - 1);
+                    if (myIndex == 1 && successorListener != null) {
+                        successorListener.run();
+                        successorListener = null;
+                    }
                     System.out.println("Watching " + root + "/" + nodeToWatch);
                     Stat s = zk.exists(root + "/" + nodeToWatch, true);
 
@@ -311,8 +644,17 @@ public class SyncPrimitive implements Watcher {
             }
         }
         
+        /**
+         * Session generation this node was elected on. Writes made as leader should
+         * be bound to it, so they fail once the leadership is lost with the session.
+         */
+        public long session() {
+            return generation;
+        }
+
         private void becomeLeader() throws KeeperException, InterruptedException {
             System.out.println("Became a leader: " + id + "!");
+            ZooKeeper zk = session(generation);
             Stat s = zk.exists(leaderNodePath, false);
             if (s == null) {
                 zk.create(leaderNodePath, id.getBytes(), Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL);
@@ -326,7 +668,7 @@ public class SyncPrimitive implements Watcher {
          */
         public void stepDown() throws KeeperException, InterruptedException {
             if (pathName != null) {
-                zk.delete(pathName, -1);
+                session(generation).delete(pathName, -1);
             }
         }
     }
@@ -349,16 +691,52 @@ public class SyncPrimitive implements Watcher {
          * @return true if successful
          */
         public boolean store(String nodePath, byte[] data) throws KeeperException, InterruptedException {
+            return store(nodePath, data, CreateMode.PERSISTENT);
+        }
+
+        /**
+         * Store data at the given node path, creating it with the given mode.
+         * An ephemeral node is removed when this session ends.
+         * @param nodePath The ZooKeeper node path to store data at
+         * @param data The data to store
+         * @param mode Create mode used if the node does not exist yet
+         * @return true if successful; connection and session failures are thrown
+         * so the caller can retry or give up instead of assuming the write happened
+         */
+        public boolean store(String nodePath, byte[] data, CreateMode mode) throws KeeperException, InterruptedException {
+            return store(nodePath, data, mode, sessionGeneration());
+        }
+
+        /**
+         * Store data at the given node path, only while the given session is still
+         * current (see Leader.session()).
+         * @param generation Session generation the caller's work started on
+         * @return true if successful
+         */
+        public boolean store(String nodePath, byte[] data, CreateMode mode, long generation)
+                throws KeeperException, InterruptedException {
             try {
+                ZooKeeper zk = session(generation);
                 Stat s = zk.exists(nodePath, false);
                 if (s == null) {
                     // Create the node and any parent paths if they don't exist
-                    ensurePathExists(nodePath.substring(0, nodePath.lastIndexOf('/')));
-                    zk.create(nodePath, data, Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+                    String parent = nodePath.substring(0, nodePath.lastIndexOf('/'));
+                    ensurePathExists(parent);
+                    try {
+                        zk.create(nodePath, data, Ids.OPEN_ACL_UNSAFE, mode);
+                    } catch (KeeperException.NoNodeException e) {
+                        // An ancestor was deleted by a round reset after being cached
+                        knownPaths.clear();
+                        ensurePathExists(parent);
+                        zk.create(nodePath, data, Ids.OPEN_ACL_UNSAFE, mode);
+                    }
                 } else {
                     zk.setData(nodePath, data, -1);
                 }
                 return true;
+            } catch (KeeperException.ConnectionLossException | KeeperException.OperationTimeoutException
+                    | KeeperException.SessionExpiredException e) {
+                throw e;
             } catch (KeeperException e) {
                 System.out.println("Error storing data at " + nodePath + ": " + e.toString());
                 return false;
@@ -378,119 +756,60 @@ public class SyncPrimitive implements Watcher {
             }
         }
     }
-    // --- Main methods for testing ---
-    
-    public static void leaderElectionTest(String args[]) {
-        Random rand = new Random();
-        int r = rand.nextInt(1000000);
-        Leader leader = new Leader(args[0], "/election", "/leader", r);
-        try {
-            leader.elect();
-            System.out.println("I am leader, I will do my work for 10 seconds.");
-            Thread.sleep(10000);
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                System.out.println("Stepping down...");
-                leader.stepDown();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-    }
-
-    public static void queueTest(String args[]) {
-        Queue q = new Queue(args[1], "/app3");
-        int max = Integer.valueOf(args[2]);
 
-        if (args[3].equals("p")) {
-            System.out.println("Producer");
-            for (int i = 0; i < max; i++) {
-                try {
-                    q.produce(10 + i);
-                } catch (KeeperException | InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-        } else {
-            System.out.println("Consumer");
-            for (int i = 0; i < max; i++) {
-                try {
-                    int r = q.consume();
-                    System.out.println("Item: " + r);
-                } catch (KeeperException | InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
+    /**
+     * Drops a deleted subtree from the path cache.
+     */
+    static void forgetPaths(String path) {
+        knownPaths.removeIf(known -> known.equals(path) || known.startsWith(path + "/"));
     }
 
-    public static void barrierTest(String args[]) {
-        Barrier b = new Barrier(args[1], "/b1", Integer.valueOf(args[2]));
-        try {
-            boolean flag = b.enter();
-            System.out.println("Entered barrier: " + args[2]);
-            if (!flag) System.out.println("Error when entering the barrier");
-        } catch (KeeperException | InterruptedException e) {
-            e.printStackTrace();
-        }
+    private static void ensurePathExists(String path) throws KeeperException, InterruptedException {
+        ensurePathsExist(Collections.singletonList(path));
+    }
 
-        Random rand = new Random();
-        int r = rand.nextInt(100);
-        System.out.println("Doing work for " + r + " iterations...");
-        for (int i = 0; i < r; i++) {
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                // ignore
+    /**
+     * Creates the given paths and their parents, skipping the ones already in
+     * the process-wide cache. Takes two round trips: one read-only multi() to
+     * find which nodes exist and one multi() creating the rest. If another
+     * process creates some of them in between, the whole step is repeated.
+     */
+    static void ensurePathsExist(Collection<String> paths) throws KeeperException, InterruptedException {
+        LinkedHashSet<String> missing = new LinkedHashSet<>(); // Parents before children
+        for (String path : paths) {
+            String current = "";
+            for (String part : path.split("/")) {
+                if (part.isEmpty()) continue;
+                current += "/" + part;
+                if (!knownPaths.contains(current)) missing.add(current);
             }
         }
-        try {
-            b.leave();
-        } catch (KeeperException | InterruptedException e) {
-            e.printStackTrace();
-        }
-        System.out.println("Left barrier");
-    }
 
-    public static void lockTest(String args[]) {
-        Lock lock = new Lock(args[1], "/lock");
-        try {
-            if (lock.lock()) {
-                System.out.println("Lock acquired. Doing work for " + args[2] + " ms.");
-                Thread.sleep(Long.valueOf(args[2]));
-                lock.unlock();
-                System.out.println("Lock released.");
+        while (!missing.isEmpty()) {
+            List<Op> reads = new ArrayList<>();
+            for (String path : missing) reads.add(Op.getData(path));
+            List<OpResult> results = zk.multi(reads);
+            Iterator<String> it = missing.iterator();
+            for (OpResult result : results) {
+                String path = it.next();
+                if (!(result instanceof OpResult.ErrorResult)) {
+                    knownPaths.add(path);
+                    it.remove();
+                }
             }
-        } catch (KeeperException | InterruptedException e) {
-            e.printStackTrace();
-        }
-    }
+            if (missing.isEmpty()) return;
 
-    private static void ensurePathExists(String path) throws KeeperException, InterruptedException {
-        String[] parts = path.split("/");
-        String current = "";
-        for (String part : parts) {
-            if (part.isEmpty()) continue;
-            current += "/" + part;
-            Stat s = zk.exists(current, false);
-            if (s == null) {
-                zk.create(current, new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+            List<Op> creates = new ArrayList<>();
+            for (String path : missing) {
+                creates.add(Op.create(path, new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT));
+            }
+            try {
+                zk.multi(creates);
+                knownPaths.addAll(missing);
+                return;
+            } catch (KeeperException.NodeExistsException e) {
+                // Created concurrently by another urn: check again
             }
         }
     }
-
-    public static void main(String args[]) {
-        if (args[0].equals("qTest"))
-            queueTest(args);
-        else if (args[0].equals("barrier"))
-            barrierTest(args);
-        else if (args[0].equals("lock"))
-            lockTest(args);
-        else if (args[0].equals("leader"))
-            leaderElectionTest(args);
-        else
-            System.err.println("Unknown option");
-    }
 }
\ No newline at end of file
@@ -7,9 +7,24 @@
  * - O tamanho do grupo de urnas.
  * - O identificador único da urna no grupo.
  * - Um mapa de votos por candidato.
+ * - O timeout de sessão e a política de novas tentativas do ZooKeeper (opcionais).
+ * - Se a urna atua como standby quando for a próxima na fila da eleição (opcional).
+ * - O arquivo colunar para exportar a apuração total ao final (opcional).
+ * - O endereço do ZooKeeper e o identificador da eleição (opcionais).
+ * - O quórum e o prazo das barreiras, e a janela para BUs atrasados (opcionais).
+ * - O diretório do journal local de envio dos BUs (opcional).
+ * - O identificador da rodada da eleição (opcional).
+ * 
+ * Com electionId, todos os caminhos ficam sob /elections/<electionId>, permitindo
+ * eleições simultâneas no mesmo cluster. Por padrão o namespace é um prefixo dos
+ * caminhos, e várias eleições podem compartilhar a mesma sessão no processo; com
+ * useChroot, a raiz da eleição vira o chroot da conexão (uma eleição por processo).
+ * Com roundId, os caminhos da rodada ficam ainda sob <eleição>/rounds/<roundId>, e
+ * cada rodada pode ser apagada por inteiro ao terminar (ver ElectionRounds).
  */
 package common;
 
+import java.util.List;
 import java.util.Map;
 
 public class UrnConfig {
@@ -18,4 +33,61 @@ public class UrnConfig {
     public int groupSize;              
     public int id;                      
     public Map<String, Integer> votes;  
+    public int sessionTimeoutMs = 3000; // Timeout da sessão com o ZooKeeper
+    public int retryMaxAttempts = 3;    // Tentativas em falhas transitórias de conexão
+    public long retryBackoffMs = 500;   // Espera inicial entre tentativas (dobra a cada falha)
+    public boolean hotStandby = true;   // Espelha a apuração do líder para assumir sem recomeçar
+    public String resultsExportPath;    // Arquivo colunar da apuração total (null desativa)
+    public String zkConnect = "127.0.0.1:2181"; // Endereço(s) do ZooKeeper
+    public String electionId;           // Namespace da eleição (null usa a raiz)
+    public boolean useChroot = false;   // Aplica o namespace como chroot da sessão
+    public int barrierQuorum;           // Urnas que liberam as barreiras (0 = groupSize)
+    public long barrierDeadlineMs;      // Espera máxima nas barreiras (0 = sem prazo)
+    public long lateArrivalWindowMs;    // Tempo em que o líder ainda aceita BUs atrasados (0 = desativado)
+    public List<String> regionUrns;     // urnIds esperados na região, para nomear os ausentes
+    public String journalDir = "journal"; // Journal local dos BUs enviados (null desativa)
+    public int journalBatchSize = 16;   // Máximo de BUs por transação ao esvaziar o journal
+    public String roundId;              // Rodada da eleição (null usa a raiz da eleição)
+
+    /**
+     * Raiz da eleição no ZooKeeper.
+     * @return "/elections/<electionId>", ou "" sem electionId
+     */
+    public String electionRoot() {
+        return electionId == null ? "" : "/elections/" + electionId;
+    }
+
+    /**
+     * Caminho, dentro da eleição, onde ficam as rodadas.
+     */
+    public String roundsRoot() {
+        return (useChroot ? "" : electionRoot()) + "/rounds";
+    }
+
+    /**
+     * Raiz do namespace da eleição e da rodada no ZooKeeper.
+     * @return ex: "/elections/<electionId>/rounds/<roundId>", ou "" sem ambos
+     */
+    public String namespace() {
+        return electionRoot() + roundSuffix();
+    }
+
+    /**
+     * String de conexão do ZooKeeper, incluindo o chroot quando useChroot está ativo.
+     */
+    public String connectString() {
+        return useChroot ? zkConnect + electionRoot() : zkConnect;
+    }
+
+    /**
+     * Resolve um caminho da eleição (ex: "/urns/SP") dentro do namespace.
+     * Com chroot o servidor já aplica a raiz da eleição, restando só a rodada.
+     */
+    public String path(String path) {
+        return (useChroot ? roundSuffix() : namespace()) + path;
+    }
+
+    private String roundSuffix() {
+        return roundId == null ? "" : "/rounds/" + roundId;
+    }
 }